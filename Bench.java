@@ -0,0 +1,342 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The benchmarks, i.e. the cost of every kernel on generated maps.
+//
+// Usage:
+//     java Bench [-csv|-json] [-noheader] [-threads n] [-compact] [-vector] [-tiled n]
+//                [-sizes 128,256,512] [-densities 0,0.15,0.3] [-seed s]
+//                [-methods SOR,KSOR,...] [-defaults] [-warmup ms] [-time ms]
+//                [-rounds n] [-nokernels] [-nosolve]
+//
+// The maps are square, of the given sizes, with random rectangles of
+// wall over the given fraction of the map, so the same seed gives the
+// same maps on every machine. For each map it times
+//     kernel   one sweep of every method, i.e. Solver.step() unchecked
+//     step     one sweep with the convergence measure
+//     check    checkConverge(), checkConvergeHS() and checkConvergeQS()
+//     update   updateMatrix()
+//     fill     doFillHS() and doFillQS()
+//     gds      runGDS() and findPath() on the solved field
+//     solve    the time to convergence of every method
+// Each benchmark is warmed up for the warmup time, then timed for the
+// given rounds of the given time each. One row is printed per benchmark
+// with the median, min and max time per op over the rounds, and the time
+// per node that the op updates, so that the HALF-SWEEP and QUARTER-SWEEP
+// kernels compare fairly with the FULL-SWEEP ones. The methods use the
+// parameters of Solver.tune(), or with -defaults those of the Planner.
+// With -tiled n the solves of GS, SOR and KSOR run n sweeps per pass, see
+// Solver.setTiled(); the kernel and step benchmarks stay untiled.
+//
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class Bench {
+    static final String[] METHODS = {
+        "JACOBI", "GS", "SOR", "AOR", "TOR", "QOR", "KSOR", "KAOR",
+        "MSOR", "MAOR", "HSSOR", "HSKSOR", "HSMSOR",
+        "QSSOR", "QSKSOR", "QSMSOR", "QSMAOR", "MG", "FMG"
+    };
+    static final double[] DEFAULTS = {-2.18, 1.82, 1.84, 1.86, 1.95, 1.96};
+
+    // The number of start points of the gds benchmarks
+    static final int STARTS = 64;
+
+    // The solve benchmarks give up after this many iterations
+    static final int MAX_ITERATIONS = 200000;
+
+    static boolean json = false;
+    static boolean header = true;
+    static ForkJoinPool pool = null;
+    static boolean compact = false;
+    static boolean vector = false;
+    static int tiled = 0;
+    static int[] sizes = {128, 256, 512};
+    static double[] densities = {0.0, 0.15, 0.3};
+    static long seed = 1;
+    static String[] methods = METHODS;
+    static boolean defaults = false;
+    static long warmup = 200;
+    static long time = 200;
+    static int rounds = 5;
+    static boolean kernels = true;
+    static boolean solves = true;
+
+    interface Op {
+        void run();
+    }
+
+    // The time per op of every round, sorted, and the ops in all rounds
+    static class Result {
+        long[] ns;
+        long ops;
+
+        Result(long[] ns, long ops) {
+            Arrays.sort(ns);
+            this.ns = ns;
+            this.ops = ops;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        try {
+            for(int k = 0; k < args.length; k++) {
+                if(args[k].equals("-json")) json = true;
+                else if(args[k].equals("-csv")) json = false;
+                else if(args[k].equals("-noheader")) header = false;
+                else if(args[k].equals("-compact")) compact = true;
+                else if(args[k].equals("-vector")) vector = true;
+                else if(args[k].equals("-tiled") && k+1 < args.length) tiled = Integer.parseInt(args[++k]);
+                else if(args[k].equals("-defaults")) defaults = true;
+                else if(args[k].equals("-nokernels")) kernels = false;
+                else if(args[k].equals("-nosolve")) solves = false;
+                else if(args[k].equals("-threads") && k+1 < args.length) pool = new ForkJoinPool(Integer.parseInt(args[++k]));
+                else if(args[k].equals("-sizes") && k+1 < args.length) sizes = intsOf(args[++k]);
+                else if(args[k].equals("-densities") && k+1 < args.length) densities = doublesOf(args[++k]);
+                else if(args[k].equals("-seed") && k+1 < args.length) seed = Long.parseLong(args[++k]);
+                else if(args[k].equals("-methods") && k+1 < args.length) methods = methodsOf(args[++k]);
+                else if(args[k].equals("-warmup") && k+1 < args.length) warmup = Long.parseLong(args[++k]);
+                else if(args[k].equals("-time") && k+1 < args.length) time = Long.parseLong(args[++k]);
+                else if(args[k].equals("-rounds") && k+1 < args.length) rounds = Integer.parseInt(args[++k]);
+                else throw new IllegalArgumentException("Unknown option " + args[k]);
+            }
+            if(rounds < 1)
+                throw new IllegalArgumentException("The rounds must be at least 1");
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        if(header && !json) {
+            System.out.println("benchmark,map,size,density,method,nodes,rounds,ops," +
+                               "median_ns,min_ns,max_ns,ns_per_node,iterations,converged");
+        }
+
+        for(int n : sizes)
+        for(double density : densities) {
+            BufferedImage img = makeMap(n, density, seed);
+            String map = String.format("rect-%d-%s-s%d", n, density, seed);
+            if(kernels) runKernels(map, img, n, density);
+            if(solves) runSolves(map, img, n, density);
+        }
+    }
+
+    static void usage() {
+        System.err.println("Usage: java Bench [-csv|-json] [-noheader] [-threads n] [-compact] [-vector] [-tiled n]");
+        System.err.println("                  [-sizes 128,256,512] [-densities 0,0.15,0.3] [-seed s]");
+        System.err.println("                  [-methods SOR,KSOR,...] [-defaults] [-warmup ms] [-time ms]");
+        System.err.println("                  [-rounds n] [-nokernels] [-nosolve]");
+    }
+
+    //
+    // A square map of n by n with walls over about density of it, made of
+    // random rectangles. The goal at the centre and the start near the
+    // bottom left corner are kept free.
+    //
+    static BufferedImage makeMap(int n, double density, long seed) {
+        BufferedImage img = new BufferedImage(n, n, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, n, n);
+
+        Random random = new Random(seed);
+        boolean[] wall = new boolean[n*n];
+        long covered = 0, target = (long)(density * n * n);
+        int lo = Math.max(1, n/32), hi = Math.max(2, n/8);
+        g.setColor(Color.BLACK);
+        while(covered < target) {
+            int w = lo + random.nextInt(hi - lo + 1);
+            int h = lo + random.nextInt(hi - lo + 1);
+            int x0 = random.nextInt(n - w + 1);
+            int y0 = random.nextInt(n - h + 1);
+            g.fillRect(x0, y0, w, h);
+            for(int y = y0; y < y0+h; y++)
+            for(int x = x0; x < x0+w; x++)
+                if(!wall[x+y*n]) {
+                    wall[x+y*n] = true;
+                    ++covered;
+                }
+        }
+
+        g.setColor(Color.WHITE);
+        g.fillRect(n/2 - 3, n/2 - 3, 7, 7);
+        g.fillRect(n/8 - 3, n - n/8 - 3, 7, 7);
+        g.dispose();
+        return img;
+    }
+
+    static Solver newSolver(BufferedImage img) {
+        Solver solver = new Solver(img, img.getWidth()/2, img.getHeight()/2, pool);
+        solver.setCompact(compact);
+        solver.setVector(vector);
+        solver.setTiled(tiled);
+        return solver;
+    }
+
+    static double[] paramsOf(Solver solver, String method) {
+        return defaults ? DEFAULTS.clone() : solver.tune(method);
+    }
+
+    static void runKernels(String map, BufferedImage img, int n, double density) {
+        for(String method : methods) {
+            if(method.equals("FMG")) continue;
+
+            Solver s = newSolver(img);
+            double[] p = paramsOf(s, method);
+            int nodes = s.nodesOf(method);
+            report("kernel", map, n, density, method, nodes,
+                   measure(() -> s.step(method, p[0], p[1], p[2], p[3], p[4], p[5], false)), -1, false);
+            report("step", map, n, density, method, nodes,
+                   measure(() -> s.step(method, p[0], p[1], p[2], p[3], p[4], p[5])), -1, false);
+        }
+
+        Solver s = newSolver(img);
+        for(int k = 0; k < 10; k++) s.doSOR(1.5);
+        report("check", map, n, density, "FULL", s.free.length, measure(() -> s.checkConverge()), -1, false);
+        report("check", map, n, density, "HALF", s.red.length, measure(() -> s.checkConvergeHS()), -1, false);
+        report("check", map, n, density, "QUARTER", s.qs.length, measure(() -> s.checkConvergeQS()), -1, false);
+        report("update", map, n, density, "FULL", s.free.length, measure(() -> s.updateMatrix()), -1, false);
+        report("fill", map, n, density, "HALF", s.free.length - s.red.length, measure(() -> s.doFillHS()), -1, false);
+        report("fill", map, n, density, "QUARTER", s.free.length - s.qs.length, measure(() -> s.doFillQS()), -1, false);
+    }
+
+    static void runSolves(String map, BufferedImage img, int n, double density) {
+        Solver last = null;
+        for(String method : methods) {
+            long[] ns = new long[rounds];
+            int iteration = 0;
+            boolean converged = true;
+            Solver solver = null;
+            for(int r = 0; r < rounds; r++) {
+                solver = newSolver(img);
+                solver.setConvergence(new Convergence(Convergence.MEAN, true, Solver.EPSILON, 1, MAX_ITERATIONS));
+                // Tuned before the clock starts, so only the iteration is timed;
+                // the tuned parameters still get the stall adaptation of solve(method)
+                double[] p = paramsOf(solver, method);
+                long startTime = System.nanoTime();
+                iteration = solver.solve(method, p, !defaults);
+                ns[r] = System.nanoTime() - startTime;
+                converged &= solver.converged;
+            }
+            report("solve", map, n, density, method, solver.nodesOf(method), new Result(ns, rounds), iteration, converged);
+            if(converged) last = solver;
+        }
+        if(last == null) return;
+
+        // The path queries on the last field that converged
+        Solver s = last;
+        Random random = new Random(seed);
+        ArrayList<Integer> free = new ArrayList<Integer>();
+        while(free.size() < STARTS) {
+            int x = 1 + random.nextInt(n-2);
+            int y = 1 + random.nextInt(n-2);
+            if(s.isReachable(x, y)) free.add(x + y*n);
+        }
+        int[] starts = new int[STARTS];
+        for(int k = 0; k < STARTS; k++) starts[k] = free.get(k);
+        int[] buf = new int[n*n];
+        int[] next = {0};
+        report("gds", map, n, density, "runGDS", 1, measure(() -> {
+            int i = starts[next[0]++ % STARTS];
+            s.runGDS(i % n, i / n);
+        }), -1, false);
+        report("gds", map, n, density, "findPath", 1, measure(() -> {
+            int i = starts[next[0]++ % STARTS];
+            s.findPath(i % n, i / n, buf);
+        }), -1, false);
+        s.buildHops();
+        report("gds", map, n, density, "findPath+hops", 1, measure(() -> {
+            int i = starts[next[0]++ % STARTS];
+            s.findPath(i % n, i / n, buf);
+        }), -1, false);
+    }
+
+    //
+    // Run op for the warmup time, then for the rounds of the given time
+    // each.
+    //
+    static Result measure(Op op) {
+        long end = System.nanoTime() + warmup * 1000000L;
+        while(System.nanoTime() < end) op.run();
+
+        long[] ns = new long[rounds];
+        long total = 0;
+        for(int r = 0; r < rounds; r++) {
+            long ops = 0;
+            long startTime = System.nanoTime();
+            end = startTime + time * 1000000L;
+            long now;
+            do {
+                op.run();
+                ++ops;
+                now = System.nanoTime();
+            } while(now < end);
+            ns[r] = (now - startTime) / ops;
+            total += ops;
+        }
+        return new Result(ns, total);
+    }
+
+    static void report(String benchmark, String map, int n, double density, String method,
+                       int nodes, Result result, int iterations, boolean converged) {
+        long[] ns = result.ns;
+        long median = ns[ns.length/2];
+        double perNode = (nodes > 0) ? (double)median / nodes : Double.NaN;
+        String its = (iterations < 0) ? "" : Integer.toString(iterations);
+        String conv = (iterations < 0) ? "" : Boolean.toString(converged);
+        if(json) {
+            System.out.println(String.format("{\"benchmark\":\"%s\",\"map\":\"%s\",\"size\":%d,\"density\":%s," +
+                                             "\"method\":\"%s\",\"nodes\":%d,\"rounds\":%d,\"ops\":%d," +
+                                             "\"median_ns\":%d,\"min_ns\":%d,\"max_ns\":%d,\"ns_per_node\":%.4f," +
+                                             "\"iterations\":%s,\"converged\":%s}",
+                                             benchmark, map, n, density, method, nodes, ns.length, result.ops,
+                                             median, ns[0], ns[ns.length-1], perNode,
+                                             its.isEmpty() ? "null" : its, conv.isEmpty() ? "null" : conv));
+        }
+        else {
+            System.out.println(String.format("%s,%s,%d,%s,%s,%d,%d,%d,%d,%d,%d,%.4f,%s,%s",
+                                             benchmark, map, n, density, method, nodes, ns.length, result.ops,
+                                             median, ns[0], ns[ns.length-1], perNode, its, conv));
+        }
+    }
+
+    static int[] intsOf(String list) {
+        String[] parts = list.split(",");
+        int[] a = new int[parts.length];
+        for(int k = 0; k < parts.length; k++) {
+            a[k] = Integer.parseInt(parts[k].trim());
+            if(a[k] < 16) throw new IllegalArgumentException("The sizes must be at least 16");
+        }
+        return a;
+    }
+
+    static double[] doublesOf(String list) {
+        String[] parts = list.split(",");
+        double[] a = new double[parts.length];
+        for(int k = 0; k < parts.length; k++) {
+            a[k] = Double.parseDouble(parts[k].trim());
+            if((a[k] < 0) || (a[k] > 0.6)) throw new IllegalArgumentException("The densities must be 0 to 0.6");
+        }
+        return a;
+    }
+
+    static String[] methodsOf(String list) {
+        String[] a = list.toUpperCase().split(",");
+        for(int k = 0; k < a.length; k++) {
+            a[k] = a[k].trim();
+            Solver.sweepOf(a[k]);
+        }
+        return a;
+    }
+}
@@ -0,0 +1,79 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The convergence criteria of the Solver.
+//
+// The error of a node is the change over one sweep, either relative,
+// i.e. |1-U/V| as in the original checkConverge(), or absolute, i.e.
+// |V-U|. The errors of the changed nodes are reduced with one of the
+//     MEAN - the mean error (the original criterion)
+//     L2   - the Euclidean norm
+//     LINF - the maximum error
+// and compared against epsilon. The check is made every interval
+// iterations only, and the Solver gives up after maxIterations if it is
+// not zero.
+//
+
+public class Convergence {
+    public static final int MEAN = 0;
+    public static final int L2   = 1;
+    public static final int LINF = 2;
+
+    int norm = MEAN;
+    boolean relative = true;
+    double epsilon = Solver.EPSILON;
+    int interval = 1;
+    int maxIterations = 0;
+
+    // The original criterion, i.e. the mean relative error < 1.0e-15 on
+    // every iteration, without an iteration cap.
+    public Convergence() {
+    }
+
+    public Convergence(int norm, boolean relative, double epsilon, int interval, int maxIterations) {
+        if(norm < MEAN || norm > LINF)
+            throw new IllegalArgumentException("Unknown norm: " + norm);
+        if(interval < 1)
+            throw new IllegalArgumentException("The check interval must be at least 1");
+
+        this.norm = norm;
+        this.relative = relative;
+        this.epsilon = epsilon;
+        this.interval = interval;
+        this.maxIterations = maxIterations;
+    }
+
+    public static int normOf(String name) {
+        switch(name.toUpperCase()) {
+            case "MEAN": return MEAN;
+            case "L2":   return L2;
+            case "LINF": return LINF;
+        }
+        throw new IllegalArgumentException("Unknown norm: " + name);
+    }
+
+    public boolean isCheck(int iteration) {
+        return (iteration % interval) == 0;
+    }
+
+    public boolean isExhausted(int iteration) {
+        return (maxIterations > 0) && (iteration >= maxIterations);
+    }
+
+    public double error(Solver.Residual r) {
+        if(norm == LINF) return r.max;
+        if(norm == L2)   return Math.sqrt(r.sq);
+        return (r.k > 0) ? r.err/r.k : 0.0;
+    }
+
+    public boolean isConverged(double error) {
+        return (error < epsilon);
+    }
+
+    public String toString() {
+        String[] names = {"MEAN", "L2", "LINF"};
+        return String.format("%s %s < %g, every %d, max %d",
+                             names[norm], relative ? "relative" : "absolute", epsilon, interval, maxIterations);
+    }
+}
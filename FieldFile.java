@@ -0,0 +1,240 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The binary potential field file, i.e. the fast saveMatrix().
+//
+// The file is a 128 byte header followed by V as Nx*Ny doubles, row by
+// row, all little-endian:
+//     0   int     MAGIC, i.e. "LPF1"
+//     4   int     VERSION
+//     8   int     Nx, Ny, gx, gy
+//     24  int     the iterations of the solve
+//     28  int     1 if the solve converged, else 0
+//     32  double  the residual of the solve
+//     40  double  the parameters w, ww, r, s, t, u
+//     88  byte    the method name, 16 bytes ASCII padded with 0
+//     104 long    the CRC32C of the field
+//     112         reserved
+// The field is read through read-only mappings of at most 1 GB each, so
+// it can be used in place, see get() and Solver.runGDS(FieldFile, x, y),
+// or copied in bulk, see read().
+//
+// A next-hop table, see Solver.buildHops(), is kept in the same form with
+// MAGIC "LPH1" and Nx*Ny bytes instead of the doubles, in one mapping.
+//
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+public class FieldFile implements Closeable {
+    static final int MAGIC = 0x3146504C;
+    static final int HOPS_MAGIC = 0x3148504C;
+    static final int VERSION = 1;
+    static final int HEADER = 128;
+    static final int CHUNK = 1 << 30;
+
+    public int Nx, Ny;
+    public int gx, gy;
+    public String method = "";
+    public double[] params = new double[6];
+    public int iterations;
+    public boolean converged;
+    public double residual = Double.NaN;
+    public long checksum;
+    public boolean hops;
+
+    FileChannel channel;
+    DoubleBuffer[] rows;
+    int rowsPerChunk;
+    ByteBuffer table;
+
+    public FieldFile(int Nx, int Ny, int gx, int gy) {
+        this.Nx = Nx;
+        this.Ny = Ny;
+        this.gx = gx;
+        this.gy = gy;
+    }
+
+    //
+    // Write the header and V. The field is written in 1 MB blocks, and the
+    // checksum is filled in last.
+    //
+    public void write(String fname, double[] V) throws IOException {
+        if(V.length != Nx*Ny)
+            throw new IllegalArgumentException("The field is not " + Nx + "x" + Ny);
+
+        try(FileChannel ch = FileChannel.open(Paths.get(fname), StandardOpenOption.CREATE,
+                                              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C crc = new CRC32C();
+
+            ch.position(HEADER);
+            DoubleBuffer db = buf.asDoubleBuffer();
+            int n;
+            for(int k = 0; k < V.length; k += n) {
+                n = Math.min(db.capacity(), V.length - k);
+                db.clear();
+                db.put(V, k, n);
+                buf.clear().limit(8*n);
+                crc.update(buf);
+                buf.flip();
+                while(buf.hasRemaining()) ch.write(buf);
+            }
+            checksum = crc.getValue();
+
+            buf.clear();
+            putHeader(buf);
+            buf.flip();
+            ch.position(0);
+            while(buf.hasRemaining()) ch.write(buf);
+        }
+    }
+
+    // Write the header and a next-hop table
+    public void writeHops(String fname, byte[] T) throws IOException {
+        if(T.length != Nx*Ny)
+            throw new IllegalArgumentException("The table is not " + Nx + "x" + Ny);
+
+        try(FileChannel ch = FileChannel.open(Paths.get(fname), StandardOpenOption.CREATE,
+                                              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32C crc = new CRC32C();
+            crc.update(T, 0, T.length);
+            checksum = crc.getValue();
+            hops = true;
+
+            ByteBuffer buf = ByteBuffer.wrap(T);
+            ch.position(HEADER);
+            while(buf.hasRemaining()) ch.write(buf);
+
+            buf = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            putHeader(buf);
+            buf.flip();
+            ch.position(0);
+            while(buf.hasRemaining()) ch.write(buf);
+        }
+    }
+
+    void putHeader(ByteBuffer buf) {
+        buf.putInt(hops ? HOPS_MAGIC : MAGIC).putInt(VERSION);
+        buf.putInt(Nx).putInt(Ny).putInt(gx).putInt(gy);
+        buf.putInt(iterations).putInt(converged ? 1 : 0);
+        buf.putDouble(residual);
+        for(int k = 0; k < 6; k++) buf.putDouble(params[k]);
+        byte[] name = new byte[16];
+        byte[] b = method.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(b, 0, name, 0, Math.min(b.length, 16));
+        buf.put(name);
+        buf.putLong(checksum);
+        while(buf.position() < HEADER) buf.put((byte)0);
+    }
+
+    //
+    // Open and map a field file. The checksum is not verified here, as it
+    // reads the whole file; see verify().
+    //
+    public static FieldFile open(String fname) throws IOException {
+        FileChannel ch = FileChannel.open(Paths.get(fname), StandardOpenOption.READ);
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while(buf.hasRemaining() && ch.read(buf) >= 0);
+            if(buf.hasRemaining())
+                throw new IOException(fname + ": not a field file");
+            buf.flip();
+            int magic = buf.getInt();
+            if((magic != MAGIC) && (magic != HOPS_MAGIC))
+                throw new IOException(fname + ": not a field file");
+            int version = buf.getInt();
+            if(version != VERSION)
+                throw new IOException(fname + ": unknown version " + version);
+
+            FieldFile f = new FieldFile(buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt());
+            f.hops = (magic == HOPS_MAGIC);
+            f.iterations = buf.getInt();
+            f.converged = (buf.getInt() != 0);
+            f.residual = buf.getDouble();
+            for(int k = 0; k < 6; k++) f.params[k] = buf.getDouble();
+            byte[] name = new byte[16];
+            buf.get(name);
+            int len = 0;
+            while(len < 16 && name[len] != 0) ++len;
+            f.method = new String(name, 0, len, StandardCharsets.US_ASCII);
+            f.checksum = buf.getLong();
+
+            if((f.Nx <= 0) || (f.Ny <= 0) || (ch.size() < HEADER + (f.hops ? 1L : 8L)*f.Nx*f.Ny))
+                throw new IOException(fname + ": truncated field file");
+            if(f.hops && ((long)f.Nx*f.Ny > Integer.MAX_VALUE))
+                throw new IOException(fname + ": the table is too large to map");
+            f.map(ch);
+            return f;
+        }
+        catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    void map(FileChannel ch) throws IOException {
+        channel = ch;
+        if(hops) {
+            table = ch.map(FileChannel.MapMode.READ_ONLY, HEADER, (long)Nx*Ny);
+            return;
+        }
+        rowsPerChunk = Math.max(1, CHUNK / (8*Nx));
+        rows = new DoubleBuffer[(Ny + rowsPerChunk - 1) / rowsPerChunk];
+        for(int c = 0; c < rows.length; c++) {
+            int y0 = c*rowsPerChunk;
+            int y1 = Math.min(Ny, y0 + rowsPerChunk);
+            rows[c] = ch.map(FileChannel.MapMode.READ_ONLY, HEADER + 8L*y0*Nx, 8L*(y1-y0)*Nx)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    public double get(int x, int y) {
+        return rows[y / rowsPerChunk].get(x + (y % rowsPerChunk)*Nx);
+    }
+
+    // Copy the whole field into V
+    public void read(double[] V) {
+        if(V.length != Nx*Ny)
+            throw new IllegalArgumentException("The field is not " + Nx + "x" + Ny);
+        int k = 0;
+        for(int c = 0; c < rows.length; c++) {
+            DoubleBuffer db = rows[c].duplicate();
+            db.clear();
+            int n = db.remaining();
+            db.get(V, k, n);
+            k += n;
+        }
+    }
+
+    public boolean verify() {
+        CRC32C crc = new CRC32C();
+        if(hops) {
+            crc.update(table.duplicate());
+            return (crc.getValue() == checksum);
+        }
+        for(int c = 0; c < rows.length; c++) {
+            int y0 = c*rowsPerChunk;
+            int y1 = Math.min(Ny, y0 + rowsPerChunk);
+            try {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, HEADER + 8L*y0*Nx, 8L*(y1-y0)*Nx));
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        return (crc.getValue() == checksum);
+    }
+
+    public void close() throws IOException {
+        if(channel != null) channel.close();
+        channel = null;
+    }
+}
@@ -0,0 +1,703 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The single and mixed precision Solver, i.e. U and V are float.
+//
+// The float field halves the memory and the memory traffic of every
+// kernel. However the potential far from the goal differs from
+// FREE_VALUE by less than the float round-off, so a float field alone
+// may be too flat for runGDS. In the mixed mode solve() iterates in float
+// until it stalls, then promote() moves the field to double and the
+// double kernels refine it to the Convergence criteria.
+//
+// The COMPACT storage is only used once the field is promoted.
+//
+
+import java.awt.image.*;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+public class FloatSolver extends Solver {
+    static final double FLOAT_EPSILON = 1.0e-7;
+
+    // Set in doInitField(), i.e. while the Solver constructor runs, so
+    // these must not have initializers.
+    float[] Uf;
+    float[] Vf;
+
+    boolean mixed;
+
+    public FloatSolver(BufferedImage img, int gx, int gy) {
+        super(img, gx, gy);
+    }
+
+    public FloatSolver(BufferedImage img, int gx, int gy, ForkJoinPool pool) {
+        super(img, gx, gy, pool);
+    }
+
+    void doInitField() {
+        Uf = new float[Nx*Ny];
+        Vf = new float[Nx*Ny];
+        forEachBand(Ny, (lo, hi, acc) -> {
+            for(int y = lo; y < hi; y++)
+            for(int x = 0; x < Nx; x++)
+                Uf[x+y*Nx] = Vf[x+y*Nx] = (float)initValue(x, y);
+        });
+    }
+
+    public void setMixed(boolean mixed) {
+        this.mixed = mixed;
+    }
+
+    public boolean isPromoted() {
+        return (Vf == null);
+    }
+
+    //
+    // Move the field to double, i.e. U and V. The walls get their exact
+    // double values back.
+    //
+    public void promote() {
+        if(Vf == null) return;
+        sync();
+
+        U = new double[Nx*Ny];
+        V = new double[Nx*Ny];
+        for(int y = 0; y < Ny; y++)
+        for(int x = 0; x < Nx; x++) {
+            if(W[x+y*Nx] == WALL_VALUE)
+                U[x+y*Nx] = V[x+y*Nx] = initValue(x, y);
+            else
+                U[x+y*Nx] = V[x+y*Nx] = Vf[x+y*Nx];
+        }
+        Uf = Vf = null;
+    }
+
+    //
+    // Iterate in float until the Convergence criteria are met or the
+    // float iteration stalls, i.e. the error is below FLOAT_EPSILON or has
+    // not improved for STALL checks. In the mixed mode the field is then
+    // promoted and refined in double. The MULTIGRID methods run in double
+    // only.
+    //
+    int doSolve(String method, double[] p, boolean adapt) {
+        long t0 = System.nanoTime();
+        if(isMultigrid(method)) promote();
+        copied(t0);
+        if(Vf == null)
+            return super.doSolve(method, p, adapt);
+
+        int sweep = sweepOf(method);
+        int iteration = 0;
+        int since = 0;
+        double best = Double.POSITIVE_INFINITY;
+        boolean check;
+
+        converged = false;
+        residual = Double.NaN;
+        while(true) {
+            ++iteration;
+            check = convergence.isCheck(iteration);
+            if(step(method, p[0], p[1], p[2], p[3], p[4], p[5], check)) {
+                converged = true;
+                break;
+            }
+
+            if(check) {
+                if(Double.isNaN(residual) || Double.isInfinite(residual)) break;
+                if(residual < FLOAT_EPSILON) break;
+                if(residual < best) {
+                    best = residual;
+                    since = 0;
+                }
+                else if(++since >= STALL) break;
+            }
+
+            if(convergence.isExhausted(iteration)) break;
+            if(isStopped()) break;
+        }
+
+        // Then refine in double
+        if(mixed && !isStopped()) {
+            t0 = System.nanoTime();
+            promote();
+            copied(t0);
+            iteration += super.doSolve(method, p, adapt);
+            iterations = iteration;
+            return iteration;
+        }
+
+        t0 = System.nanoTime();
+        sync();
+        if(sweep == HALF_SWEEP) {
+            doFillHS();
+            updateMatrix();
+        }
+        else if(sweep == QUARTER_SWEEP) {
+            doFillQS();
+            updateMatrix();
+        }
+        copied(t0);
+        record(method, p[0], p[1], p[2], p[3], p[4], p[5], iteration);
+        return iteration;
+    }
+
+    public long footprint() {
+        return super.footprint() + 4L * (len(Uf) + len(Vf));
+    }
+
+    public void pack(int sweep) {
+        if(Vf == null) super.pack(sweep);
+    }
+
+    void swap() {
+        if(Vf == null) {
+            super.swap();
+            return;
+        }
+        float[] t = Uf; Uf = Vf; Vf = t;
+    }
+
+    public void updateMatrix() {
+        if(Vf == null) {
+            super.updateMatrix();
+            return;
+        }
+
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Uf[i] = Vf[i];
+        }
+    }
+
+    boolean checkConverge(int[] idx) {
+        if(Vf == null) return super.checkConverge(idx);
+
+        Residual res = new Residual(convergence.relative);
+        int i;
+        for(int n = 0; n < idx.length; n++) {
+            i = idx[n];
+            res.add(Uf[i], Vf[i]);
+        }
+        residual = convergence.error(res);
+        return convergence.isConverged(residual);
+    }
+
+    //
+    // The FULL-SWEEP methods.
+    //
+    public void doJacobi() {
+        if(Vf == null) {
+            super.doJacobi();
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Vf[i] = 0.25f * (Uf[i-1] + Uf[i+1] + Uf[i-Nx] + Uf[i+Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doGS() {
+        if(Vf == null) {
+            super.doGS();
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Vf[i] = 0.25f * (Vf[i-1] + Uf[i+1] + Vf[i-Nx] + Uf[i+Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doSOR(double w) {
+        if(Vf == null) {
+            super.doSOR(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Vf[i] = fw*0.25f * (Vf[i-1] + Uf[i+1] + Vf[i-Nx] + Uf[i+Nx]) + (1-fw)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doAOR(double w, double r) {
+        if(Vf == null) {
+            super.doAOR(w, r);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w, fr = (float)r;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Vf[i] = fw*0.25f * (Uf[i-1] + Uf[i+1] + Uf[i-Nx] + Uf[i+Nx]) + (1-fw)*Uf[i] +
+                    fr*0.25f * (Vf[i-1] - Uf[i-1] + Vf[i-Nx] - Uf[i-Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doTOR(double w, double r, double s) {
+        if(Vf == null) {
+            super.doTOR(w, r, s);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w, fr = (float)r, fs = (float)s;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Vf[i] = fw*0.25f * (Uf[i-1] + Uf[i+1] + Uf[i-Nx] + Uf[i+Nx]) + (1-fw)*Uf[i] +
+                    fr*0.25f * (Vf[i-1 ] - Uf[i-1 ])+
+                    fs*0.25f * (Vf[i-Nx] - Uf[i-Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doKSOR(double w) {
+        if(Vf == null) {
+            super.doKSOR(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Vf[i] = (1f/(1f+fw)) * (fw*0.25f * (Vf[i-1] + Uf[i+1] + Vf[i-Nx] + Uf[i+Nx]) + Uf[i]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doKAOR(double w, double r) {
+        if(Vf == null) {
+            super.doKAOR(w, r);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w, fr = (float)r;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            Vf[i] = ((1f+fr-fw)/(1f+fr)) * Uf[i] +
+                    (fw /(1f+fr)) * 0.25f * (Uf[i-1] + Uf[i-Nx] + Uf[i+1] + Uf[i+Nx]) +
+                    (fr /(1f+fr)) * 0.25f * (Vf[i-1] - Uf[i-1] + Vf[i-Nx] - Uf[i-Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    //
+    // The red-black FULL-SWEEP methods, i.e. MSOR, MAOR and QOR.
+    //
+    public void doMSOR(double w, double ww) {
+        if(Vf == null) {
+            super.doMSOR(w, ww);
+            return;
+        }
+
+        float fw = (float)w, fww = (float)ww;
+        forEachBand(red, (lo, hi, acc) -> doMSORRedF(fw, lo, hi, acc));
+        forEachBand(black, (lo, hi, acc) -> doMSORBlackF(fww, lo, hi, acc));
+    }
+
+    void doMSORRedF(float w, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = red[k];
+            Vf[i] = w*0.25f * (Uf[i-1] + Uf[i+1] + Uf[i-Nx] + Uf[i+Nx]) + (1-w)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    void doMSORBlackF(float ww, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = black[k];
+            Vf[i] = ww*0.25f * (Vf[i-1] + Vf[i+1] + Vf[i-Nx] + Vf[i+Nx]) + (1-ww)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doMAOR(double w, double ww, double r) {
+        if(Vf == null) {
+            super.doMAOR(w, ww, r);
+            return;
+        }
+
+        float fw = (float)w, fww = (float)ww, fr = (float)r;
+        forEachBand(red, (lo, hi, acc) -> doMSORRedF(fww, lo, hi, acc));
+        forEachBand(black, (lo, hi, acc) -> doMAORBlackF(fw, fr, lo, hi, acc));
+    }
+
+    void doMAORBlackF(float w, float r, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = black[k];
+            Vf[i] =  w*0.25f * (Uf[i-1] + Uf[i+1] + Uf[i-Nx] + Uf[i+Nx]) + (1-w)*Uf[i] +
+                     r*0.25f * (Vf[i-1] - Uf[i-1] + Vf[i-Nx] - Uf[i-Nx] +
+                                Vf[i+1] - Uf[i+1] + Vf[i+Nx] - Uf[i+Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doQOR(double w, double r, double s, double t, double u) {
+        if(Vf == null) {
+            super.doQOR(w, r, s, t, u);
+            return;
+        }
+
+        float fw = (float)w, fr = (float)r, fs = (float)s, ft = (float)t, fu = (float)u;
+        forEachBand(red, (lo, hi, acc) -> doMSORRedF(fw, lo, hi, acc));
+        forEachBand(black, (lo, hi, acc) -> doQORBlackF(fw, fr, fs, ft, fu, lo, hi, acc));
+    }
+
+    void doQORBlackF(float w, float r, float s, float t, float u, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = black[k];
+            Vf[i] = w*0.25f * (Uf[i-1] + Uf[i+1] + Uf[i-Nx] + Uf[i+Nx]) + (1-w)*Uf[i] +
+                    r*0.25f * (Vf[i-1 ] - Uf[i-1 ])+
+                    s*0.25f * (Vf[i+1 ] - Uf[i+1 ])+
+                    t*0.25f * (Vf[i-Nx] - Uf[i-Nx])+
+                    u*0.25f * (Vf[i+Nx] - Uf[i+Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    //
+    // The multigrid methods run in double only, so the field is promoted
+    // to double first.
+    //
+    public void doMG() {
+        promote();
+        super.doMG();
+    }
+
+    public void doFMG() {
+        promote();
+        super.doFMG();
+    }
+
+    //
+    // The HALF-SWEEP methods.
+    //
+    public void doHSSOR(double w) {
+        if(Vf == null) {
+            super.doHSSOR(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w;
+        int i;
+        for(int k = 0; k < red.length; k++) {
+            i = red[k];
+            Vf[i] = fw*0.25f * (Vf[i-1-Nx] + Vf[i+1-Nx] + Uf[i-1+Nx] + Uf[i+1+Nx]) + (1-fw)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doHSKSOR(double w) {
+        if(Vf == null) {
+            super.doHSKSOR(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w;
+        int i;
+        for(int k = 0; k < red.length; k++) {
+            i = red[k];
+            Vf[i] = (1f/(1f+fw)) * (fw*0.25f * (Vf[i-1-Nx] + Vf[i+1-Nx] + Uf[i-1+Nx] + Uf[i+1+Nx]) + Uf[i]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doHSMSOR(double w, double ww) {
+        if(Vf == null) {
+            super.doHSMSOR(w, ww);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w, fww = (float)ww;
+        int i;
+
+        // Compute the RED nodes
+        for(int k = 0; k < odd.length; k++) {
+            i = odd[k];
+            Vf[i] = fw*0.25f * (Uf[i-1-Nx] + Uf[i+1-Nx] + Uf[i-1+Nx] + Uf[i+1+Nx]) + (1-fw)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < even.length; k++) {
+            i = even[k];
+            Vf[i] = fww*0.25f * (Vf[i-1-Nx] + Vf[i+1-Nx] + Vf[i-1+Nx] + Vf[i+1+Nx]) + (1-fww)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doFillHS() {
+        if(Vf == null) {
+            super.doFillHS();
+            return;
+        }
+
+        sync();
+        int i;
+        for(int k = 0; k < black.length; k++) {
+            i = black[k];
+            Vf[i] = 0.25f * (Vf[i-1] + Vf[i+1] + Vf[i-Nx] + Vf[i+Nx]);
+        }
+    }
+
+    //
+    // The QUARTER-SWEEP methods.
+    //
+    public void doQSSOR(double w) {
+        if(Vf == null) {
+            super.doQSSOR(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w;
+        int i;
+        for(int k = 0; k < qs.length; k++) {
+            i = qs[k];
+            Vf[i] = fw*0.25f * (Vf[i-2] + Uf[i+2] + Vf[i-2*Nx] + Uf[i+2*Nx]) + (1-fw)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doQSKSOR(double w) {
+        if(Vf == null) {
+            super.doQSKSOR(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w;
+        int i;
+        for(int k = 0; k < qs.length; k++) {
+            i = qs[k];
+            Vf[i] = (1f/(1f+fw)) * (fw*0.25f * (Vf[i-2] + Uf[i+2] + Vf[i-2*Nx] + Uf[i+2*Nx]) + Uf[i]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doQSMSOR(double w, double ww) {
+        if(Vf == null) {
+            super.doQSMSOR(w, ww);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w, fww = (float)ww;
+        int i;
+
+        // Compute the RED nodes
+        for(int k = 0; k < qsRed.length; k++) {
+            i = qsRed[k];
+            Vf[i] = fw*0.25f * (Uf[i-2] + Uf[i+2] + Uf[i-2*Nx] + Uf[i+2*Nx]) + (1-fw)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < qsBlack.length; k++) {
+            i = qsBlack[k];
+            Vf[i] = fww*0.25f * (Vf[i-2] + Vf[i+2] + Vf[i-2*Nx] + Vf[i+2*Nx]) + (1-fww)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doQSMAOR(double w, double ww, double r) {
+        if(Vf == null) {
+            super.doQSMAOR(w, ww, r);
+            return;
+        }
+
+        Residual acc = this.acc;
+        float fw = (float)w, fww = (float)ww, fr = (float)r;
+        int i;
+
+        // Compute the RED nodes
+        for(int k = 0; k < qsRed.length; k++) {
+            i = qsRed[k];
+            Vf[i] = fww*0.25f * (Uf[i-2] + Uf[i+2] + Uf[i-2*Nx] + Uf[i+2*Nx]) + (1-fww)*Uf[i];
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < qsBlack.length; k++) {
+            i = qsBlack[k];
+            Vf[i] =  fw*0.25f * (Uf[i-2] + Uf[i+2] + Uf[i-2*Nx] + Uf[i+2*Nx]) + (1-fw)*Uf[i] +
+                     fr*0.25f * (Vf[i-2] - Uf[i-2] + Vf[i-2*Nx] - Uf[i-2*Nx] +
+                                 Vf[i+2] - Uf[i+2] + Vf[i+2*Nx] - Uf[i+2*Nx]);
+            if(acc != null) acc.add(Uf[i], Vf[i]);
+        }
+    }
+
+    public void doFillQS() {
+        if(Vf == null) {
+            super.doFillQS();
+            return;
+        }
+
+        sync();
+        int i;
+
+        // Compute WHITE Square, i.e. x and y are ODD
+        for(int k = 0; k < odd.length; k++) {
+            i = odd[k];
+            Vf[i] = 0.25f * (Vf[i-1-Nx] + Vf[i+1-Nx] + Vf[i-1+Nx] + Vf[i+1+Nx]);
+        }
+
+        // Compute WHITE Dot, i.e. x ODD and y EVEN or otherwise
+        for(int k = 0; k < black.length; k++) {
+            i = black[k];
+            Vf[i] = 0.25f * (Vf[i-1] + Vf[i+1] + Vf[i-Nx] + Vf[i+Nx]);
+        }
+    }
+
+    //
+    // The path query on the float field, see Solver.findPath().
+    //
+    public int findPath(int x, int y, int[] buf) {
+        if((Vf == null) || (hops != null)) return super.findPath(x, y, buf);
+
+        settle();
+        float[] Vf = this.Vf;
+        int i = x+y*Nx, min = i, n = 0;
+
+        while(true) {
+            if(Vf[i-1] < Vf[min]) min = i-1;
+            if(Vf[i-Nx] < Vf[min]) min = i-Nx;
+            if(Vf[i+1] < Vf[min]) min = i+1;
+            if(Vf[i+Nx] < Vf[min]) min = i+Nx;
+
+            if(Vf[i-1-Nx] < Vf[min]) min = i-1-Nx;
+            if(Vf[i+1-Nx] < Vf[min]) min = i+1-Nx;
+            if(Vf[i-1+Nx] < Vf[min]) min = i-1+Nx;
+            if(Vf[i+1+Nx] < Vf[min]) min = i+1+Nx;
+
+            if(n < buf.length) buf[n] = min;
+            ++n;
+
+            // Opps, we stuck
+            if(min == i) break;
+
+            // The goal is found
+            if(Vf[min] == GOAL_VALUE) break;
+
+            i = min;
+        }
+        return n;
+    }
+
+    void doBuildHops(byte[] T, int lo, int hi) {
+        if(Vf == null) {
+            super.doBuildHops(T, lo, hi);
+            return;
+        }
+
+        int i, min, d;
+        for(int y = Math.max(lo, 1); y < Math.min(hi, Ny-1); y++)
+        for(int x = 1; x < Nx-1; x++) {
+            i = x+y*Nx;
+            if(Vf[i] == GOAL_VALUE) {
+                T[i] = HOP_GOAL;
+                continue;
+            }
+            min = i;
+            d = HOP_STUCK;
+            for(int k = 0; k < 8; k++)
+                if(Vf[i+hop[k]] < Vf[min]) { min = i+hop[k]; d = k; }
+            T[i] = (byte)d;
+        }
+    }
+
+    // A float field can't settle below its round-off
+    public int repair(double tol, double w) {
+        return super.repair((Vf == null) ? tol : Math.max(tol, FLOAT_EPSILON), w);
+    }
+
+    int doRepairTile(int x0, int y0, int x1, int y1, double w, Residual res) {
+        if(Vf == null) return super.doRepairTile(x0, y0, x1, y1, w, res);
+
+        int i, n = 0;
+        float v;
+        for(int y = Math.max(y0, 1); y < y1; y++)
+        for(int x = Math.max(x0, 1); x < x1; x++) {
+            i = x+y*Nx;
+            if((W[i] == WALL_VALUE) || (reach && !A[i])) continue;
+            v = (float)(w*0.25 * (Vf[i-1] + Vf[i+1] + Vf[i-Nx] + Vf[i+Nx]) + (1-w)*Vf[i]);
+            res.add(Vf[i], v);
+            Uf[i] = Vf[i] = v;
+            ++n;
+        }
+        return n;
+    }
+
+    void setValue(int i, double v) {
+        if(Vf == null) {
+            super.setValue(i, v);
+            return;
+        }
+        Uf[i] = Vf[i] = (float)v;
+    }
+
+    public double getValue(int x, int y) {
+        if(Vf == null) return super.getValue(x, y);
+
+        sync();
+        return Vf[x+y*Nx];
+    }
+
+    //
+    // The text matrix and the field file are always double, so these
+    // promote the field first.
+    //
+    public void printMatrix() {
+        promote();
+        super.printMatrix();
+    }
+
+    public void saveMatrix(String fname) {
+        promote();
+        super.saveMatrix(fname);
+    }
+
+    public void loadMatrix(String fname) {
+        promote();
+        super.loadMatrix(fname);
+    }
+
+    public void saveField(String fname) throws IOException {
+        promote();
+        super.saveField(fname);
+    }
+
+    public void loadField(String fname) throws IOException {
+        promote();
+        super.loadField(fname);
+    }
+}
@@ -0,0 +1,446 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The fields of many goals on one map, solved together.
+//
+// The map is read once into one Solver that holds only the walls and the
+// index lists, and every goal shares it. The fields are kept interleaved
+// by rows in blocks of BLOCK goals, i.e. row y of every goal of a block
+// comes before row y+1 of any of them. A sweep runs over one row of the
+// index list for every goal of the block while the row and its nybor
+// rows are in cache, and each pass is the plain loop of Solver. With a
+// pool the blocks are swept in parallel; a block is written by one
+// thread only.
+//
+// The goal points of one goal are free nodes of the others, so they are
+// skipped per goal where they fall. Each goal stops when it converges on
+// its own, so its field, iterations and residual are the same as those of
+// a Solver of that goal alone, run serially with the same Convergence.
+// Only SOR, KSOR and MSOR are supported.
+//
+
+import java.awt.image.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+public class MultiSolver {
+    // The goals of one block, i.e. one cache line of doubles per node
+    static final int BLOCK = 8;
+
+    static final int SOR = 0;
+    static final int KSOR = 1;
+    static final int MSOR = 2;
+
+    int Nx, Ny;
+    int[] gx, gy;
+
+    // The shared walls and index lists
+    Solver map;
+    int[] free, red, black;
+
+    // The start of every row in each list, i.e. row y is rows[y]..rows[y+1]-1
+    int[] freeRows, redRows, blackRows;
+
+    // The nodes that are a goal point of some goal
+    boolean[] near;
+
+    static class Block {
+        int g0, n;
+        double[] U, V;
+        int[] act;
+        int nAct;
+        Solver.Residual[] res;
+    }
+
+    Block[] blocks;
+
+    ForkJoinPool pool;
+    Convergence convergence = new Convergence();
+
+    // The outcome of the last solve(), per goal
+    public int[] iterations;
+    public boolean[] converged;
+    public double[] residual;
+
+    public MultiSolver(BufferedImage img, int[][] goals) {
+        this(img, goals, null);
+    }
+
+    //
+    // The goals are given as {x, y} pairs. With a pool the map is read in
+    // parallel bands and the blocks are swept in parallel.
+    //
+    public MultiSolver(BufferedImage img, int[][] goals, ForkJoinPool pool) {
+        if(goals.length == 0)
+            throw new IllegalArgumentException("No goals");
+        this.pool = pool;
+        Nx = img.getWidth();
+        Ny = img.getHeight();
+
+        map = new Solver(img, pool);
+        map.doInitIndex();
+        free = map.free;
+        red = map.red;
+        black = map.black;
+        freeRows = rowsOf(free);
+        redRows = rowsOf(red);
+        blackRows = rowsOf(black);
+
+        int G = goals.length;
+        gx = new int[G];
+        gy = new int[G];
+        near = new boolean[Nx*Ny];
+        for(int g = 0; g < G; g++) {
+            gx[g] = goals[g][0];
+            gy[g] = goals[g][1];
+            if((gx[g] < 1) || (gy[g] < 1) || (gx[g] > Nx-2) || (gy[g] > Ny-2))
+                throw new IllegalArgumentException("The goal " + gx[g] + "," + gy[g] + " is off the map");
+            for(int y = gy[g]-1; y <= gy[g]+1; y++)
+            for(int x = gx[g]-1; x <= gx[g]+1; x++)
+                near[x+y*Nx] = true;
+        }
+
+        if((long)Nx*Ny*BLOCK > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("The map is too large for " + BLOCK + " goals a block");
+
+        blocks = new Block[(G + BLOCK-1) / BLOCK];
+        for(int k = 0; k < blocks.length; k++) {
+            Block b = new Block();
+            b.g0 = k*BLOCK;
+            b.n = Math.min(BLOCK, G - b.g0);
+            b.U = new double[Nx*Ny*b.n];
+            b.V = new double[Nx*Ny*b.n];
+            b.act = new int[b.n];
+            b.res = new Solver.Residual[b.n];
+            blocks[k] = b;
+        }
+
+        iterations = new int[G];
+        converged = new boolean[G];
+        residual = new double[G];
+        doInitField();
+    }
+
+    public int goals() {
+        return gx.length;
+    }
+
+    public void setConvergence(Convergence convergence) {
+        this.convergence = convergence;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    //
+    // Initialize every field as the Solver of its goal does, i.e. the goal
+    // points are set to GOAL_VALUE, the walls to BOUNDARY_VALUE and the
+    // rest to FREE_VALUE.
+    //
+    void doInitField() {
+        for(int k = 0; k < blocks.length; k++) {
+            Block b = blocks[k];
+            for(int c = 0; c < b.n; c++)
+            for(int y = 0; y < Ny; y++)
+            for(int x = 0; x < Nx; x++)
+                b.U[at(b, x+y*Nx, c)] = b.V[at(b, x+y*Nx, c)] = initValue(b.g0+c, x, y);
+        }
+    }
+
+    double initValue(int g, int x, int y) {
+        // The outer boundary walls
+        if((x == 0) || (y == 0) || (x == Nx-1) || (y == Ny-1))
+            return Solver.BOUNDARY_VALUE;
+
+        // The goal point and its 8 nyboring points
+        if((Math.abs(x-gx[g]) <= 1) && (Math.abs(y-gy[g]) <= 1))
+            return Solver.GOAL_VALUE;
+
+        return (map.W[x+y*Nx] == Solver.WALL_VALUE) ? Solver.BOUNDARY_VALUE : Solver.FREE_VALUE;
+    }
+
+    // Where node i of goal c of the block is kept
+    int at(Block b, int i, int c) {
+        return i + ((i/Nx)*(b.n-1) + c)*Nx;
+    }
+
+    int[] rowsOf(int[] idx) {
+        int[] rows = new int[Ny+1];
+        for(int k = 0; k < idx.length; k++)
+            ++rows[idx[k]/Nx + 1];
+        for(int y = 0; y < Ny; y++)
+            rows[y+1] += rows[y];
+        return rows;
+    }
+
+    static int methodOf(String method) {
+        switch(method.toUpperCase()) {
+            case "SOR":  return SOR;
+            case "KSOR": return KSOR;
+            case "MSOR": return MSOR;
+        }
+        throw new IllegalArgumentException("Iteration Method Not Supported by MultiSolver: " + method);
+    }
+
+    //
+    // Iterate every goal from its current field until it converges, as
+    // Solver.solve() does. Returns the iterations of the slowest goal; the
+    // ones of each goal are in iterations.
+    //
+    public int solve(String method, double w, double ww) {
+        int m = methodOf(method);
+        for(int k = 0; k < blocks.length; k++) {
+            Block b = blocks[k];
+            b.nAct = b.n;
+            for(int c = 0; c < b.n; c++) b.act[c] = c;
+        }
+        Arrays.fill(iterations, 0);
+        Arrays.fill(converged, false);
+        Arrays.fill(residual, Double.NaN);
+
+        int iteration = 0;
+        Block[] live = blocks;
+        while(live.length > 0) {
+            ++iteration;
+            boolean check = convergence.isCheck(iteration);
+            for(int k = 0; k < live.length; k++) {
+                Block b = live[k];
+                for(int n = 0; n < b.nAct; n++)
+                    b.res[n] = check ? new Solver.Residual(convergence.relative) : null;
+            }
+
+            Block[] bs = live;
+            if((pool == null) || (bs.length == 1)) {
+                for(int k = 0; k < bs.length; k++)
+                    sweep(bs[k], m, w, ww);
+            }
+            else {
+                Solver.Band band = (lo, hi, acc) -> {
+                    for(int k = lo; k < hi; k++) sweep(bs[k], m, w, ww);
+                };
+                pool.invoke(new Solver.BandTask(band, bs.length, bs.length, new Solver.Residual[bs.length], 0, bs.length));
+            }
+
+            int nLive = 0;
+            for(int k = 0; k < live.length; k++) {
+                Block b = live[k];
+                double[] t = b.U; b.U = b.V; b.V = t;
+                done(b, check, iteration);
+                if(b.nAct > 0) live[nLive++] = b;
+            }
+            live = Arrays.copyOf(live, nLive);
+        }
+        return iteration;
+    }
+
+    // Drop the goals of the block that are done after this iteration
+    void done(Block b, boolean check, int iteration) {
+        int n = 0, c, g;
+        for(int k = 0; k < b.nAct; k++) {
+            c = b.act[k];
+            g = b.g0 + c;
+            boolean stop = false;
+            if(check) {
+                residual[g] = convergence.error(b.res[k]);
+                if(convergence.isConverged(residual[g])) {
+                    converged[g] = true;
+                    stop = true;
+                }
+
+                // Opps, it diverges
+                else if(Double.isNaN(residual[g]) || Double.isInfinite(residual[g])) stop = true;
+            }
+            if(convergence.isExhausted(iteration)) stop = true;
+
+            if(stop) {
+                iterations[g] = iteration;
+                settle(b, c);
+            }
+            else b.act[n++] = c;
+        }
+        b.nAct = n;
+    }
+
+    // After the swap U holds the latest field of the goal; copy it to V,
+    // so that both hold it while the rest of the block goes on.
+    void settle(Block b, int c) {
+        int j;
+        for(int k = 0; k < free.length; k++) {
+            j = at(b, free[k], c);
+            b.V[j] = b.U[j];
+        }
+    }
+
+    void sweep(Block b, int m, double w, double ww) {
+        switch(m) {
+            case SOR:  doSOR(b, w); break;
+            case KSOR: doKSOR(b, w); break;
+            case MSOR:
+                doMSORRed(b, w);
+                doMSORBlack(b, ww);
+                break;
+        }
+    }
+
+    //
+    // The kernels of Solver, row by row and goal by goal, with the row of
+    // a goal above or below S = Nx*G away.
+    //
+    void doSOR(Block b, double w) {
+        double[] U = b.U, V = b.V;
+        int G = b.n, S = Nx*G;
+        int[] rows = freeRows;
+        int i, j, c, g, off;
+        for(int y = 1; y < Ny-1; y++)
+        for(int n = 0; n < b.nAct; n++) {
+            c = b.act[n];
+            g = b.g0 + c;
+            off = (y*(G-1) + c)*Nx;
+            Solver.Residual acc = b.res[n];
+            boolean goal = Math.abs(y - gy[g]) <= 1;
+            for(int k = rows[y]; k < rows[y+1]; k++) {
+                i = free[k];
+                if(goal && (Math.abs(i - y*Nx - gx[g]) <= 1)) continue;
+                j = i + off;
+                V[j] = w*0.25 * (V[j-1] + U[j+1] + V[j-S] + U[j+S]) + (1-w)*U[j];
+                if(acc != null) acc.add(U[j], V[j]);
+            }
+        }
+    }
+
+    void doKSOR(Block b, double w) {
+        double[] U = b.U, V = b.V;
+        int G = b.n, S = Nx*G;
+        int[] rows = freeRows;
+        int i, j, c, g, off;
+        for(int y = 1; y < Ny-1; y++)
+        for(int n = 0; n < b.nAct; n++) {
+            c = b.act[n];
+            g = b.g0 + c;
+            off = (y*(G-1) + c)*Nx;
+            Solver.Residual acc = b.res[n];
+            boolean goal = Math.abs(y - gy[g]) <= 1;
+            for(int k = rows[y]; k < rows[y+1]; k++) {
+                i = free[k];
+                if(goal && (Math.abs(i - y*Nx - gx[g]) <= 1)) continue;
+                j = i + off;
+                V[j] = (1./(1.+w)) * (w*0.25 * (V[j-1] + U[j+1] + V[j-S] + U[j+S]) + U[j]);
+                if(acc != null) acc.add(U[j], V[j]);
+            }
+        }
+    }
+
+    void doMSORRed(Block b, double w) {
+        double[] U = b.U, V = b.V;
+        int G = b.n, S = Nx*G;
+        int[] rows = redRows;
+        int i, j, c, g, off;
+        for(int y = 1; y < Ny-1; y++)
+        for(int n = 0; n < b.nAct; n++) {
+            c = b.act[n];
+            g = b.g0 + c;
+            off = (y*(G-1) + c)*Nx;
+            Solver.Residual acc = b.res[n];
+            boolean goal = Math.abs(y - gy[g]) <= 1;
+            for(int k = rows[y]; k < rows[y+1]; k++) {
+                i = red[k];
+                if(goal && (Math.abs(i - y*Nx - gx[g]) <= 1)) continue;
+                j = i + off;
+                V[j] = w*0.25 * (U[j-1] + U[j+1] + U[j-S] + U[j+S]) + (1-w)*U[j];
+                if(acc != null) acc.add(U[j], V[j]);
+            }
+        }
+    }
+
+    void doMSORBlack(Block b, double ww) {
+        double[] U = b.U, V = b.V;
+        int G = b.n, S = Nx*G;
+        int[] rows = blackRows;
+        int i, j, c, g, off;
+        for(int y = 1; y < Ny-1; y++)
+        for(int n = 0; n < b.nAct; n++) {
+            c = b.act[n];
+            g = b.g0 + c;
+            off = (y*(G-1) + c)*Nx;
+            Solver.Residual acc = b.res[n];
+            boolean goal = Math.abs(y - gy[g]) <= 1;
+            for(int k = rows[y]; k < rows[y+1]; k++) {
+                i = black[k];
+                if(goal && (Math.abs(i - y*Nx - gx[g]) <= 1)) continue;
+                j = i + off;
+                V[j] = ww*0.25 * (V[j-1] + V[j+1] + V[j-S] + V[j+S]) + (1-ww)*U[j];
+                if(acc != null) acc.add(U[j], V[j]);
+            }
+        }
+    }
+
+    public double getValue(int g, int x, int y) {
+        Block b = blocks[g / BLOCK];
+        return b.V[at(b, x+y*Nx, g % BLOCK)];
+    }
+
+    //
+    // The path query of Solver.findPath() on the field of goal g, i.e.
+    // the cells x+y*Nx of the GDS from x, y. Many threads may query at
+    // once as long as none of them solves.
+    //
+    public int findPath(int g, int x, int y, int[] buf) {
+        Block b = blocks[g / BLOCK];
+        double[] V = b.V;
+        int c = g % BLOCK;
+        int i = x+y*Nx, min = i, n = 0;
+        int[] hop = map.hop;
+
+        while(true) {
+            for(int k = 0; k < 8; k++)
+                if(V[at(b, i+hop[k], c)] < V[at(b, min, c)]) min = i+hop[k];
+
+            if(n < buf.length) buf[n] = min;
+            ++n;
+
+            // Opps, we stuck
+            if(min == i) break;
+
+            // The goal is found
+            if(V[at(b, min, c)] == Solver.GOAL_VALUE) break;
+
+            i = min;
+        }
+        return n;
+    }
+
+    public int[] findPath(int g, int x, int y) {
+        int[] buf = new int[Solver.PATH_SIZE];
+        int n = findPath(g, x, y, buf);
+        if(n > buf.length) {
+            buf = new int[n];
+            findPath(g, x, y, buf);
+        }
+        return Arrays.copyOf(buf, n);
+    }
+
+    //
+    // The goal with the shortest path from x, y, or -1 if every path is
+    // stuck. The paths are counted in steps.
+    //
+    public int nearestGoal(int x, int y) {
+        int[] buf = new int[Solver.PATH_SIZE];
+        int best = -1, len = Integer.MAX_VALUE, n, end;
+        for(int g = 0; g < gx.length; g++) {
+            n = findPath(g, x, y, buf);
+            if(n > buf.length) {
+                buf = new int[n];
+                findPath(g, x, y, buf);
+            }
+            end = buf[n-1];
+            if(getValue(g, end % Nx, end / Nx) != Solver.GOAL_VALUE) continue;
+            if(n < len) {
+                best = g;
+                len = n;
+            }
+        }
+        return best;
+    }
+}
@@ -14,6 +14,8 @@ import java.util.*;
 import java.io.*;
 import javax.imageio.*;
 import java.awt.image.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.awt.geom.Ellipse2D;
 import java.util.Timer;
@@ -32,6 +34,7 @@ public class Planner extends JFrame implements ActionListener {
     public static final String LOAD_MAP = "Load Map...";
     public static final String RUN_ITER = "Run";
     public static final String RUN_GDS  = "GDS";
+    public static final String STOP     = "Stop";
     public static final String SAVE_MAP = "Save Map...";
     public static final String SAVE_MATRIX = "Save Matrix...";
     public static final String LOAD_MATRIX = "Load Matrix...";
@@ -62,7 +65,15 @@ public class Planner extends JFrame implements ActionListener {
 
     //The solver
     public Solver solver;
-    public Thread iteratorThread;
+    public SolveTask task;
+
+    // The solves run one at a time on a daemon thread, and a new run or
+    // Stop cancels the one under way.
+    public static ExecutorService executor = Executors.newSingleThreadExecutor((Runnable r) -> {
+        Thread t = new Thread(r, "Solver");
+        t.setDaemon(true);
+        return t;
+    });
     public boolean isInitialized = false;
 
     public Planner() {
@@ -79,6 +90,7 @@ public class Planner extends JFrame implements ActionListener {
         fileMenu.addSeparator();
         fileMenu.add(RUN_ITER).addActionListener(this);
         fileMenu.add(RUN_GDS ).addActionListener(this);
+        fileMenu.add(STOP    ).addActionListener(this);
         fileMenu.addSeparator();
         fileMenu.add(SAVE_MAP).addActionListener(this);
         fileMenu.addSeparator();
@@ -232,10 +244,17 @@ public class Planner extends JFrame implements ActionListener {
 
 //            runIter();
 
-            iteratorThread = new Thread(new Iterator());
-            iteratorThread.start();
+            if(task != null) task.cancel(true);
+            task = startSolve();
+        }
+        else if (str.equals(STOP)) {
+            if(task != null) task.cancel(true);
         }
         else if (str.equals(RUN_GDS)) {
+            if(isSolving()) {
+                taNote.append("Still solving...\n");
+                return;
+            }
             int x = Integer.parseInt(tfStartX.getText());
             int y = Integer.parseInt(tfStartY.getText());
             solver.runGDS(x, y);
@@ -270,6 +289,11 @@ public class Planner extends JFrame implements ActionListener {
                     File fout = chooser.getSelectedFile();
                     String fname = fout.getName();
 
+                    if(isSolving()) {
+                        taNote.append("Still solving...\n");
+                        return;
+                    }
+
                     int gx = Integer.parseInt(tfGoalX.getText());
                     int gy = Integer.parseInt(tfGoalY.getText());
                     init();
@@ -279,7 +303,10 @@ public class Planner extends JFrame implements ActionListener {
                         solver = new Solver(mapImage, gx, gy);
                         isInitialized = true;
                     }
-                    solver.saveMatrix(fname);
+                    if(fname.toLowerCase().endsWith(".txt"))
+                        solver.saveMatrix(fname);
+                    else
+                        solver.saveField(fname);
                     JOptionPane.showMessageDialog(null,
                                                   "Done",
                                                   "Save Matrix",
@@ -298,13 +325,18 @@ public class Planner extends JFrame implements ActionListener {
                     File fout = chooser.getSelectedFile();
                     String fname = fout.getName();
 
+                    if(task != null) task.cancel(true);
+
                     int gx = Integer.parseInt(tfGoalX.getText());
                     int gy = Integer.parseInt(tfGoalY.getText());
                     solver = new Solver(mapImage, gx, gy);
                     init();
                     canvas.repaint();
 
-                    solver.loadMatrix(fname);
+                    if(fname.toLowerCase().endsWith(".txt"))
+                        solver.loadMatrix(fname);
+                    else
+                        solver.loadField(fname);
                     JOptionPane.showMessageDialog(null,
                                                   "Done",
                                                   "Load Matrix",
@@ -343,251 +375,88 @@ public class Planner extends JFrame implements ActionListener {
         }
     }
 
-    class Iterator implements Runnable {
-        private void displayMeter(int it) {
-            if((it % 1000) == 0) {
-               label.setText(String.format("%d", it));
-            }
+    //
+    // Start the solve of the text fields on the executor. The progress and
+    // the log are handed to the Swing thread, and a cancelled run logs
+    // nothing but the cancel.
+    //
+    public SolveTask startSolve() {
+        int gx = Integer.parseInt(tfGoalX.getText());
+        int gy = Integer.parseInt(tfGoalY.getText());
+        String method = tfMethod.getText().trim().toUpperCase();
+
+        // "auto" for w tunes the parameters to the map, see Solver.tune()
+        boolean auto = tfW1.getText().trim().equalsIgnoreCase("auto");
+        double[] p = null;
+        if (!auto) {
+            p = new double[] {Float.parseFloat(tfW1.getText()), Float.parseFloat(tfW2.getText()),
+                              Float.parseFloat(tfR1.getText()), Float.parseFloat(tfR2.getText()),
+                              Float.parseFloat(tfR3.getText()), Float.parseFloat(tfR4.getText())};
         }
-        public void run() {
-            int gx = Integer.parseInt(tfGoalX.getText());
-            int gy = Integer.parseInt(tfGoalY.getText());
-
-            double w = Float.parseFloat(tfW1.getText());
-            double ww= Float.parseFloat(tfW2.getText());
-
-            double r = Float.parseFloat(tfR1.getText());
-            double s = Float.parseFloat(tfR2.getText());
-            double t = Float.parseFloat(tfR3.getText());
-            double u = Float.parseFloat(tfR4.getText());
-
-            int iteration = 0;
-            boolean converge = false;
-
-            long elapsedTime;
-            long stopTime;
-            long startTime = System.nanoTime();
-
-            solver = new Solver(mapImage, gx, gy);
-            isInitialized = true;
-
-            // FULL-SWEEP CPU
-            if (tfMethod.getText().toUpperCase().equals("GS")) {
-                while(!converge) {
-                    solver.doGS();
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> GS\n"));
-            } else
-            if (tfMethod.getText().toUpperCase().equals("SOR")) {
-                while(!converge) {
-                    solver.doSOR(w);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> SOR, w=%.2f\n", w));
-            } else
-            if (tfMethod.getText().toUpperCase().equals("AOR")) {
-                while(!converge) {
-                    solver.doAOR(w, r);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> AOR, w=%.2f, r=%.2f\n", w, r));
-            } else
-            if (tfMethod.getText().toUpperCase().equals("TOR")) {
-                while(!converge) {
-                    solver.doTOR(w, r, s);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> TOR, w=%.2f, r=%.2f, s=%.2f\n", w, r, s));
-            } else
-            if (tfMethod.getText().toUpperCase().equals("QOR")) {
-                while(!converge) {
-                    solver.doQOR(w, r, s, t, u);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> QOR, w=%.2f, r=%.2f, s=%.2f, t=%.2f, u=%.2f\n", w, r, s, t, u));
-            } else
-
-
-
-
-
-			// KSOR on CPU
-            if (tfMethod.getText().toUpperCase().equals("KSOR")) {
-                while(!converge) {
-                    solver.doKSOR(w);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> KSOR, w=%.2f\n", w));
-            } else
-            // HSKSOR on CPU
-            if (tfMethod.getText().toUpperCase().equals("HSKSOR")) {
-                while(!converge) {
-                    solver.doHSKSOR(w);
-                    displayMeter(++iteration);
-                    converge = solver.checkConvergeHS();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                solver.doFillHS();
-                solver.updateMatrix();
-                taNote.append(String.format(">>> HSKSOR, w=%.2f\n", w));
-            } else
-            // QSKSOR on CPU
-            if (tfMethod.getText().toUpperCase().equals("QSKSOR")) {
-                while(!converge) {
-                    solver.doQSKSOR(w);
-                    displayMeter(++iteration);
-                    converge = solver.checkConvergeQS();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                solver.doFillQS();
-                solver.updateMatrix();
-                taNote.append(String.format(">>> QSKSOR, w=%.2f\n", w));
-            } else
-
-			//
-			// KAOR -- CPU
-			//
-            if (tfMethod.getText().toUpperCase().equals("KAOR")) {
-                while(!converge) {
-                    solver.doKAOR(w, r);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> KAOR, w=%.2f, r=%.2f\n", w, r));
-            } else
-
-
-
-            // HALF-SWEEP CPU
-            if (tfMethod.getText().toUpperCase().equals("HSSOR")) {
-                while(!converge) {
-                    solver.doHSSOR(w);
-                    displayMeter(++iteration);
-                    converge = solver.checkConvergeHS();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                solver.doFillHS();
-                solver.updateMatrix();
-                taNote.append(String.format(">>> HSSOR, w=%.2f\n", w));
-            } else
-            // QUARTER-SWEEP CPU
-            if (tfMethod.getText().toUpperCase().equals("QSSOR")) {
-                while(!converge) {
-                    solver.doQSSOR(w);
-                    displayMeter(++iteration);
-                    converge = solver.checkConvergeQS();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                solver.doFillQS();
-                solver.updateMatrix();
-                taNote.append(String.format(">>> QSSOR, w=%.2f\n", w));
-            } else
-
- 
-
 
+        try {
+            Solver.sweepOf(method);
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Iteration Method Not Found!!!");
+            return null;
+        }
 
-            // FULL-SWEEP MODIFIED CPU
-            if (tfMethod.getText().toUpperCase().equals("MSOR")) {
-                while(!converge) {
-                    solver.doMSOR(w, ww);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> MSOR, w=%.2f, ww=%.2f\n", w, ww));
-            } else
-            if (tfMethod.getText().toUpperCase().equals("MAOR")) {
-                while(!converge) {
-                    solver.doMAOR(w, ww, r);
-                    displayMeter(++iteration);
-                    converge = solver.checkConverge();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                taNote.append(String.format(">>> MAOR, w=%.2f, ww=%.2f, r=%.2f\n", w, ww, r));
-            } else
-
-
-            // HALF-SWEEP MODIFIED CPU
-            if (tfMethod.getText().toUpperCase().equals("HSMSOR")) {
-                while(!converge) {
-                    solver.doHSMSOR(w, ww);
-                    displayMeter(++iteration);
-                    converge = solver.checkConvergeHS();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                solver.doFillHS();
-                solver.updateMatrix();
-                taNote.append(String.format(">>> HSMSOR, w=%.2f, ww=%.2f\n", w, ww));
-            } else
-
-
-            // QUARTER-SWEEP MODIFIED CPU
-            if (tfMethod.getText().toUpperCase().equals("QSMSOR")) {
-                solver.doInitRB();
-                while(!converge) {
-                    solver.doQSMSOR(w, ww);
-                    displayMeter(++iteration);
-                    converge = solver.checkConvergeQS();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                solver.doFillQS();
-                solver.updateMatrix();
-                taNote.append(String.format(">>> QSMSOR, w=%.2fm ww=%.2f\n", w, ww));
-            } else
-            if (tfMethod.getText().toUpperCase().equals("QSMAOR")) {
-                solver.doInitRB();
-                while(!converge) {
-                    solver.doQSMAOR(w, ww, r);
-                    displayMeter(++iteration);
-                    converge = solver.checkConvergeQS();
-                    solver.updateMatrix();
-                }
-                label.setText(String.format("%d", iteration));
-                solver.doFillQS();
-                solver.updateMatrix();
-                taNote.append(String.format(">>> QSMAOR, w=%.2fm ww=%.2f r=%.2f\n", w, ww, r));
+        long startTime = System.nanoTime();
+        solver = new Solver(mapImage, gx, gy);
+        isInitialized = true;
+
+        final double[] q = p;
+        final SolveTask[] self = new SolveTask[1];
+        Solver.Listener progress = new Solver.Listener() {
+            public void onIteration(Solver so, Solver.Stats st) {
+                int it = st.iterations;
+                if((it % 1000) == 0)
+                    SwingUtilities.invokeLater(() -> label.setText(String.format("%d", it)));
             }
 
-
-            // NONE OF THE ABOVE
-            else {
-                System.out.println("Iteration Method Not Found!!!");
+            public void onSolve(Solver so, Solver.Stats st) {
+                long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime); // Total elapsed in ms
+                double[] used = so.params.clone();
+                SwingUtilities.invokeLater(() -> {
+                    if(self[0].isCancelled()) {
+                        taNote.append(String.format(">>> %s cancelled\n", method));
+                        return;
+                    }
+                    label.setText(String.format("%d", st.iterations));
+                    taNote.append(describe(method, used, q == null));
+                    displayLog(st.iterations, elapsedTime);
+                });
             }
+        };
+        self[0] = new SolveTask(solver, method, p, 0, 0, progress);
+        return self[0].start(executor);
+    }
+
+    // A stopped task is done at once, but its thread still finishes the
+    // sweep and the fill on the solver, so GDS and Save wait for it too
+    public boolean isSolving() {
+        return task != null && (!task.isDone() || task.isRunning());
+    }
 
-            stopTime = System.nanoTime();
-            elapsedTime = TimeUnit.NANOSECONDS.toMillis(stopTime - startTime); // Total elapsed in ms
-            displayLog(iteration, elapsedTime);
+    // The log line of a run, with the parameters that the method takes
+    static String describe(String method, double[] p, boolean auto) {
+        if(auto) return String.format(">>> %s, auto w=%.4f\n", method, p[0]);
+        switch(method) {
+            case "GS": case "MG": case "FMG": case "JACOBI":
+                return String.format(">>> %s\n", method);
+            case "AOR": case "KAOR":
+                return String.format(">>> %s, w=%.2f, r=%.2f\n", method, p[0], p[2]);
+            case "TOR":
+                return String.format(">>> %s, w=%.2f, r=%.2f, s=%.2f\n", method, p[0], p[2], p[3]);
+            case "QOR":
+                return String.format(">>> %s, w=%.2f, r=%.2f, s=%.2f, t=%.2f, u=%.2f\n", method, p[0], p[2], p[3], p[4], p[5]);
+            case "MSOR": case "HSMSOR": case "QSMSOR":
+                return String.format(">>> %s, w=%.2f, ww=%.2f\n", method, p[0], p[1]);
+            case "MAOR": case "QSMAOR":
+                return String.format(">>> %s, w=%.2f, ww=%.2f, r=%.2f\n", method, p[0], p[1], p[2]);
         }
+        return String.format(">>> %s, w=%.2f\n", method, p[0]);
     }
 
     public static void main(String[] args) {
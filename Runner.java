@@ -0,0 +1,280 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The headless batch runner, i.e. the Planner without the GUI.
+//
+// Usage:
+//     java Runner [-csv|-json] [-noheader] [-threads n] [-compact] [-vector] [-tiled n] [-float|-mixed] [-warm] [-reach] [-tune] [-stats] [criteria] <map.png> <sx> <sy> <gx> <gy> <method> [w ww r s t u]
+//     java Runner [-csv|-json] [-noheader] [-threads n] [-compact] [-vector] [-tiled n] [-float|-mixed] [-warm] [-reach] [-tune] [-stats] [criteria] -batch <jobs.txt>
+//
+// Each line of the jobs file holds the same arguments as the single run,
+// i.e. "<map.png> <sx> <sy> <gx> <gy> <method> [w ww r s t u]". Empty lines
+// and lines starting with '#' are skipped. One result is printed per run.
+// With -threads the red-black methods (MSOR, MAOR, QOR) run in parallel.
+// With -compact the HALF-SWEEP and QUARTER-SWEEP methods iterate on packed
+// storage. With -vector JACOBI, MSOR, MAOR, QOR and the fills run the
+// branch-free kernels that the JIT vectorises. With -tiled n GS, SOR and
+// KSOR apply n sweeps per pass over the grid. With -float the field is
+// kept in single precision, and with -mixed it is iterated in float and
+// refined in double. With -warm a run on the same map as the run before
+// it moves the goal of that Solver and carries on from its field instead
+// of starting over. With -reach the free nodes that are cut off from the
+// goal are not iterated, and a start that can't reach the goal is given
+// the status "unreachable" without a solve. With -tune the parameters are
+// worked out for the map by Solver.tune() instead of taken from the job,
+// and the ones used are printed. With -stats the Solver.Stats of the solve
+// are printed after the path length, i.e. the node updates per second, the
+// time in the kernel, the check and the copy, and the bytes of the field.
+// The convergence criteria are
+//     -norm mean|l2|linf   the norm of the error (mean)
+//     -abs                 the absolute error instead of the relative one
+//     -eps e               the tolerance (1.0e-15)
+//     -every k             check the convergence every k iterations (1)
+//     -maxiter n           give up after n iterations (0, i.e. never)
+//
+
+import java.awt.image.*;
+import javax.imageio.*;
+import java.io.*;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+public class Runner {
+    // The same defaults as the Planner text fields
+    static final String[] DEFAULTS = {"-2.18", "1.82", "1.84", "1.86", "1.95", "1.96"};
+
+    static boolean json = false;
+    static boolean header = true;
+    static ForkJoinPool pool = null;
+    static boolean compact = false;
+    static boolean vector = false;
+    static int tiled = 0;
+    static int precision = 0;
+    static int norm = Convergence.MEAN;
+    static boolean relative = true;
+    static double epsilon = Solver.EPSILON;
+    static int interval = 1;
+    static int maxIterations = 0;
+    static boolean warm = false;
+    static boolean reach = false;
+    static boolean tune = false;
+    static boolean stats = false;
+    static Solver last = null;
+    static String lastMap = null;
+    static HashMap<String, BufferedImage> maps = new HashMap<String, BufferedImage>();
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        String batch = null;
+        int k = 0;
+        while(k < args.length && args[k].startsWith("-")) {
+            if(args[k].equals("-json")) json = true;
+            else if(args[k].equals("-csv")) json = false;
+            else if(args[k].equals("-noheader")) header = false;
+            else if(args[k].equals("-batch") && k+1 < args.length) batch = args[++k];
+            else if(args[k].equals("-compact")) compact = true;
+            else if(args[k].equals("-vector")) vector = true;
+            else if(args[k].equals("-tiled") && k+1 < args.length) tiled = Integer.parseInt(args[++k]);
+            else if(args[k].equals("-warm")) warm = true;
+            else if(args[k].equals("-reach")) reach = true;
+            else if(args[k].equals("-tune")) tune = true;
+            else if(args[k].equals("-stats")) stats = true;
+            else if(args[k].equals("-float")) precision = 1;
+            else if(args[k].equals("-mixed")) precision = 2;
+            else if(args[k].equals("-norm") && k+1 < args.length) norm = Convergence.normOf(args[++k]);
+            else if(args[k].equals("-abs")) relative = false;
+            else if(args[k].equals("-eps") && k+1 < args.length) epsilon = Double.parseDouble(args[++k]);
+            else if(args[k].equals("-every") && k+1 < args.length) interval = Integer.parseInt(args[++k]);
+            else if(args[k].equals("-maxiter") && k+1 < args.length) maxIterations = Integer.parseInt(args[++k]);
+            else if(args[k].equals("-threads") && k+1 < args.length) pool = new ForkJoinPool(Integer.parseInt(args[++k]));
+            else break;
+            ++k;
+        }
+
+        Convergence convergence;
+        try {
+            convergence = new Convergence(norm, relative, epsilon, interval, maxIterations);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+            return;
+        }
+
+        if(header && !json) {
+            System.out.println("map,method,start_x,start_y,goal_x,goal_y,w,ww,r,s,t,u," +
+                               "iterations,elapsed_ms,converged,residual,status,path_length," +
+                               (stats ? "updates_per_s,kernel_ms,check_ms,copy_ms,bytes," : "") + "path");
+        }
+
+        int failed = 0;
+        if(batch != null) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(batch));
+                String line;
+                while((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if(line.isEmpty() || line.startsWith("#")) continue;
+                    if(!run(line.split("\\s+"), 0, convergence)) ++failed;
+                }
+                reader.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+        else if(!run(args, k, convergence)) ++failed;
+
+        if(failed > 0) System.exit(1);
+    }
+
+    static void usage() {
+        System.err.println("Usage: java Runner [-csv|-json] [-noheader] [-threads n] [-compact] [-vector] [-tiled n] [-float|-mixed] [-warm] [-reach] [-tune] [-stats] [criteria] <map.png> <sx> <sy> <gx> <gy> <method> [w ww r s t u]");
+        System.err.println("       java Runner [-csv|-json] [-noheader] [-threads n] [-compact] [-vector] [-tiled n] [-float|-mixed] [-warm] [-reach] [-tune] [-stats] [criteria] -batch <jobs.txt>");
+    }
+
+    static boolean run(String[] args, int k, Convergence convergence) {
+        if(args.length - k < 6) {
+            usage();
+            return false;
+        }
+
+        String fname = args[k];
+        String method = args[k+5].toUpperCase();
+        int sx, sy, gx, gy;
+        double[] p = new double[6];
+        try {
+            sx = Integer.parseInt(args[k+1]);
+            sy = Integer.parseInt(args[k+2]);
+            gx = Integer.parseInt(args[k+3]);
+            gy = Integer.parseInt(args[k+4]);
+            // Parsed as in the Planner so that the results match the GUI
+            for(int i = 0; i < 6; i++)
+                p[i] = Float.parseFloat((k+6+i < args.length) ? args[k+6+i] : DEFAULTS[i]);
+            Solver.sweepOf(method);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            return false;
+        }
+
+        BufferedImage img = maps.get(fname);
+        if(img == null) {
+            try {
+                img = ImageIO.read(new File(fname));
+            }
+            catch (IOException e) {
+                System.err.println(fname + ": " + e.getMessage());
+                return false;
+            }
+            if(img == null) {
+                System.err.println(fname + ": not a supported image");
+                return false;
+            }
+            maps.put(fname, img);
+        }
+
+        long startTime = System.nanoTime();
+        Solver solver;
+        if(warm && fname.equals(lastMap)) {
+            solver = last;
+            solver.setGoal(gx, gy);
+        }
+        else {
+            if(precision > 0) {
+                FloatSolver fs = new FloatSolver(img, gx, gy, pool);
+                fs.setMixed(precision == 2);
+                solver = fs;
+            }
+            else
+                solver = new Solver(img, gx, gy, pool);
+            solver.setCompact(compact);
+            solver.setVector(vector);
+            solver.setTiled(tiled);
+            solver.setConvergence(convergence);
+            if(reach) solver.setReach(true);
+        }
+        last = solver;
+        lastMap = fname;
+
+        int Nx = img.getWidth();
+        int iteration = 0;
+        int[] path = new int[0];
+        boolean converged = false;
+        double residual = Double.NaN;
+        Solver.Stats st = null;
+        String status = "unreachable";
+        if(!reach || solver.isReachable(sx, sy)) {
+            if(tune) {
+                iteration = solver.solve(method);
+                p = solver.params;
+            }
+            else
+                iteration = solver.solve(method, p[0], p[1], p[2], p[3], p[4], p[5]);
+            converged = solver.converged;
+            residual = solver.residual;
+            st = solver.stats;
+
+            // The path as the cell indices x+y*Nx
+            path = solver.findPath(sx, sy);
+            int end = (path.length > 0) ? path[path.length-1] : sx+sy*Nx;
+            status = (solver.getValue(end % Nx, end / Nx) == Solver.GOAL_VALUE) ? "goal" : "stuck";
+        }
+        long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        StringBuilder sb = new StringBuilder();
+        if(json) {
+            sb.append(String.format("{\"map\":\"%s\",\"method\":\"%s\",\"start\":[%d,%d],\"goal\":[%d,%d],",
+                                    fname.replace("\\", "\\\\").replace("\"", "\\\""), method, sx, sy, gx, gy));
+            sb.append(String.format("\"params\":{\"w\":%s,\"ww\":%s,\"r\":%s,\"s\":%s,\"t\":%s,\"u\":%s},",
+                                    (float)p[0], (float)p[1], (float)p[2], (float)p[3], (float)p[4], (float)p[5]));
+            sb.append(String.format("\"iterations\":%d,\"elapsed_ms\":%d,\"converged\":%b,\"residual\":%s,",
+                                    iteration, elapsedTime, converged, jsonNumber(residual)));
+            sb.append(String.format("\"status\":\"%s\",\"path_length\":%d,", status, path.length));
+            if(stats) {
+                if(st == null) sb.append("\"stats\":null,");
+                else sb.append(String.format("\"stats\":{\"updates_per_s\":%s,\"kernel_ms\":%s,\"check_ms\":%s,\"copy_ms\":%s,\"bytes\":%d},",
+                                             jsonNumber(st.updatesPerSecond()), millis(st.kernelNanos),
+                                             millis(st.checkNanos), millis(st.copyNanos), st.bytes));
+            }
+            sb.append("\"path\":[");
+            for(int i = 0; i < path.length; i++) {
+                if(i > 0) sb.append(',');
+                sb.append('[').append(path[i] % Nx).append(',').append(path[i] / Nx).append(']');
+            }
+            sb.append("]}");
+        }
+        else {
+            sb.append(String.format("%s,%s,%d,%d,%d,%d,%s,%s,%s,%s,%s,%s,%d,%d,%b,%s,%s,%d,",
+                                    fname, method, sx, sy, gx, gy,
+                                    (float)p[0], (float)p[1], (float)p[2], (float)p[3], (float)p[4], (float)p[5],
+                                    iteration, elapsedTime, converged, residual, status, path.length));
+            if(stats) {
+                if(st == null) sb.append(",,,,,");
+                else sb.append(String.format("%.0f,%s,%s,%s,%d,", st.updatesPerSecond(), millis(st.kernelNanos),
+                                             millis(st.checkNanos), millis(st.copyNanos), st.bytes));
+            }
+            for(int i = 0; i < path.length; i++) {
+                if(i > 0) sb.append(';');
+                sb.append(path[i] % Nx).append(' ').append(path[i] / Nx);
+            }
+        }
+        System.out.println(sb.toString());
+        return true;
+    }
+
+    static String millis(long ns) {
+        return String.format("%.3f", ns / 1.0e6);
+    }
+
+    // JSON has no NaN or Infinity
+    static String jsonNumber(double d) {
+        return (Double.isNaN(d) || Double.isInfinite(d)) ? "null" : Double.toString(d);
+    }
+}
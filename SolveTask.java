@@ -0,0 +1,131 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The asynchronous solve, i.e. a Solver.solve() run on an executor.
+//
+// A SolveTask is a Future of the Stats of the solve. It is run by the
+// executor it is given to, so the caller decides how many solves run at
+// once and how many may wait. cancel() stops the iteration after the
+// sweep under way, or drops the task if it has not started yet. The
+// cancelled task is done at once, but its thread still finishes that
+// sweep and fills the field; isRunning() is true until it is through,
+// and the Solver must not be used before then. The iteration
+// also stops when the budget of iterations or of time is spent; the
+// time is counted from when the task starts to run. A stopped solve
+// still syncs and fills the field, so the Solver is left usable, and
+// get() returns its Stats with converged false.
+//
+// Only one solve may run on a Solver at a time. Give each task its own
+// Solver, or wait for the task before the next one is started; a task
+// that finds its Solver busy fails with an IllegalStateException. The
+// listener is set on the Solver while the task runs only.
+//
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+public class SolveTask extends FutureTask<Solver.Stats> {
+    Solver solver;
+    Solver.Listener listener;
+    volatile boolean stop;
+    volatile boolean running;
+    int maxIterations;
+    long timeout;
+    long deadline;
+    boolean timedOut;
+
+    //
+    // The solve of the method with the parameters p, or with the ones of
+    // Solver.tune() if p is null. A maxIterations or timeout of 0 means
+    // no budget; the timeout is in milliseconds. The listener, if any, is
+    // called on the thread of the executor.
+    //
+    public SolveTask(Solver solver, String method, double[] p, int maxIterations, long timeout, Solver.Listener listener) {
+        this(solver, new Callable<Solver.Stats>() {
+            public Solver.Stats call() {
+                if(p == null) solver.solve(method);
+                else solver.solve(method, p[0], p[1], p[2], p[3], p[4], p[5]);
+                return solver.stats;
+            }
+        });
+        if(maxIterations < 0 || timeout < 0)
+            throw new IllegalArgumentException("The budget must not be negative");
+        Solver.sweepOf(method);
+
+        this.maxIterations = maxIterations;
+        this.timeout = timeout;
+        this.listener = listener;
+    }
+
+    SolveTask(Solver solver, Callable<Solver.Stats> call) {
+        super(call);
+        this.solver = solver;
+    }
+
+    public void run() {
+        if(isDone()) return;
+        synchronized(solver) {
+            if(solver.task != null) {
+                setException(new IllegalStateException("The Solver is already solving"));
+                return;
+            }
+            solver.task = this;
+            running = true;
+        }
+        Solver.Listener previous = solver.listener;
+        try {
+            if(listener != null) solver.setListener(listener);
+            if(timeout > 0) deadline = System.nanoTime() + timeout * 1000000L;
+            super.run();
+        }
+        finally {
+            synchronized(solver) {
+                solver.listener = previous;
+                solver.task = null;
+                running = false;
+            }
+        }
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        stop = true;
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    // Called by the Solver after each sweep and its convergence check
+    boolean isStopped(int iteration) {
+        if(stop) return true;
+        if(maxIterations > 0 && iteration >= maxIterations) return true;
+        if(timeout > 0 && System.nanoTime() - deadline >= 0) {
+            timedOut = true;
+            return true;
+        }
+        return false;
+    }
+
+    // Whether the thread of the task still uses the Solver, which may be
+    // after a cancel() has made the task done
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Whether the solve was stopped by the time budget
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public Solver getSolver() {
+        return solver;
+    }
+
+    //
+    // Submit the task to the executor. A RejectedExecutionException of a
+    // bounded executor is passed on to the caller.
+    //
+    public SolveTask start(Executor executor) {
+        executor.execute(this);
+        return this;
+    }
+}
@@ -6,14 +6,24 @@
 //
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.awt.image.*;
 import javax.imageio.*;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.awt.Color;
 import java.awt.Point;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 
 public class Solver {
     static final int WALL_VALUE = 1;
@@ -23,515 +33,2623 @@ public class Solver {
 
     static final double EPSILON = 1.0e-15;
 
+    // The first guess of the path length, see findPath(x, y)
+    static final int PATH_SIZE = 1024;
+
+    // The ends of a path in the next-hop table, see buildHops()
+    static final byte HOP_STUCK = 8;
+    static final byte HOP_GOAL = 9;
+
     //Matrix variables
     double[] U;
     double[] V;
     int[] W;
 
+    // The obstacles, i.e. W without the goal points
+    int[] O;
+
     int[] RB;
 
+    // The active-cell index lists
+    int[] free;
+    int[] red, black;
+    int[] odd, even;
+    int[] qs, qsRed, qsBlack;
+
+    // The compact storage, see pack()
+    boolean compact;
+    int packed;
+    int Cx;
+    double[] Uc, Vc;
+    int[] qsC, qsRedC, qsBlackC, evenC;
+    int[] redH, oddH, evenH;
+
+    // The vector kernels, see setVector()
+    boolean vector;
+    int H;
+    double[] M, MBlack, MOdd;
+    double[] Rc, Rn, Bc, MR, MB;
+
+    // The temporally tiled sweeps, see setTiled()
+    int tiled;
+    int[] freeRows;
+
     int Nx,Ny;
+    int gx,gy;
 
     public Queue<Point> path;
 
-    public Solver(BufferedImage img, int gx, int gy) {
-        Nx = img.getWidth();
-        Ny = img.getHeight();
+    // The parallel mode, i.e. the RED and BLACK passes are split into
+    // bands of rows. A null pool runs everything on the calling thread.
+    ForkJoinPool pool;
 
-        U = new double[Nx*Ny];
-        V = new double[Nx*Ny];
-        W = new int[Nx*Ny];
+    interface Band {
+        void run(int lo, int hi, Residual acc);
+    }
 
-        RB= new int[Nx*Ny];
+    // The fused iteration, see step()
+    Residual acc;
+    boolean stale;
+
+    // The convergence criteria, and the outcome of the last solve()
+    Convergence convergence = new Convergence();
+    public double residual;
+    public boolean converged;
+
+    // The reachability pre-pass, see setReach()
+    boolean reach;
+    boolean[] A, reachable;
+    int[] nybors;
+
+    // The Jacobi spectral radius of each sweep, see tune()
+    double[] radius;
+    static final int STALL = 100;
+
+    // The cells changed since the last repair(), and its queued tiles
+    int[] dirty = new int[64];
+    int nDirty;
+    boolean[] queued;
+    static final int TILE = 16;
+    static final double REPAIR_OMEGA = 1.5;
+    static final int REPAIR_BUDGET = 8;
+
+    // The next-hop table, see buildHops(), and the offsets of the
+    // 8 nybors in the order runGDS() tries them
+    ByteBuffer hops;
+    int[] hop;
+
+    // The last solve(), for saveField()
+    public String method = "";
+    public double[] params = new double[6];
+    public int iterations;
+
+    // The metrics of the last solve(), and of the one under way, see Stats
+    public Stats stats;
+    Stats live;
+    Listener listener;
+
+    // The asynchronous solve under way, see SolveTask
+    SolveTask task;
 
-        path = new LinkedList<Point>();
+    public Solver(BufferedImage img, int gx, int gy) {
+        this(img, gx, gy, null);
+    }
 
-        //
-        // Initialize the matrix U, V, W.
-        //
-        int rgb;
-        for(int y = 0; y < Ny; y++)
-        for(int x = 0; x < Nx; x++) {
-            rgb = img.getRGB(x, y);
-            rgb = rgb & 0x00FFFFFF;
-            // The boundary wall
-            if(rgb == 0) {
-                U[x+y*Nx] = V[x+y*Nx] = BOUNDARY_VALUE;
-                W[x+y*Nx] = WALL_VALUE;
-            }
+    //
+    // With a pool the map is read and the field is set in parallel row
+    // bands, and the pool is kept as by setPool().
+    //
+    public Solver(BufferedImage img, int gx, int gy, ForkJoinPool pool) {
+        this(img, pool);
 
-            // The goal point
-            else if((x == gx) && (y == gy)) {
-                U[x+y*Nx] = V[x+y*Nx] = GOAL_VALUE;
-                W[x+y*Nx] = WALL_VALUE;
-            }
+        this.gx = gx;
+        this.gy = gy;
 
-            // The free space
-            else { //if(rgb == 0xFFFFFF) {
-                U[x+y*Nx] = V[x+y*Nx] = FREE_VALUE;
-            }
-        }
+        // The goal point
+        W[gx+gy*Nx] = WALL_VALUE;
 
         // Make the 8 nyboring goal points
         int dP[][] = {{-1,0}, {1,0}, {0,-1}, {0,1}, {-1,-1}, {1,-1}, {-1,1}, {1,1}};
         for(int k = 0; k < 8; k++) {
             int x = gx + dP[k][0];
             int y = gy + dP[k][1];
-            U[x+y*Nx] = V[x+y*Nx] = GOAL_VALUE;
             W[x+y*Nx] = WALL_VALUE;
         }
 
+        doInitField();
+        doInitIndex();
+    }
+
+    //
+    // The walls of the map only, i.e. W and O with the outer boundary but
+    // without a goal, a field or the index lists. MultiSolver shares one
+    // of these between its goals.
+    //
+    Solver(BufferedImage img, ForkJoinPool pool) {
+        this.pool = pool;
+        Nx = img.getWidth();
+        Ny = img.getHeight();
+
+        W = new int[Nx*Ny];
+        O = new int[Nx*Ny];
+
+        RB= new int[Nx*Ny];
+
+        path = new LinkedList<Point>();
+        hop = new int[] {-1, -Nx, 1, Nx, -1-Nx, 1-Nx, -1+Nx, 1+Nx};
+        nybors = new int[] {-1, -Nx, 1, Nx, -1-Nx, 1-Nx, -1+Nx, 1+Nx, -2, -2*Nx, 2, 2*Nx};
+
+        //
+        // Initialize the matrix W, i.e. the black pixels are walls.
+        //
+        forEachBand(Ny, (lo, hi, acc) -> doReadWalls(img, lo, hi));
+
         // Make the outer boundary walls
         for(int x = 0; x < Nx; x++) {
-            U[x+0*Nx] = V[x+0*Nx] = BOUNDARY_VALUE;
-            W[x+0*Nx] = WALL_VALUE;
-            U[x+(Ny-1)*Nx] = V[x+(Ny-1)*Nx] = BOUNDARY_VALUE;
-            W[x+(Ny-1)*Nx] = WALL_VALUE;
+            W[x+0*Nx] = O[x+0*Nx] = WALL_VALUE;
+            W[x+(Ny-1)*Nx] = O[x+(Ny-1)*Nx] = WALL_VALUE;
         }
         for(int y = 0; y < Ny; y++) {
-            U[0+y*Nx] = V[0+y*Nx] = BOUNDARY_VALUE;
-            W[0+y*Nx] = WALL_VALUE;
-            U[(Nx-1)+y*Nx] = V[(Nx-1)+y*Nx] = BOUNDARY_VALUE;
-            W[(Nx-1)+y*Nx] = WALL_VALUE;
+            W[0+y*Nx] = O[0+y*Nx] = WALL_VALUE;
+            W[(Nx-1)+y*Nx] = O[(Nx-1)+y*Nx] = WALL_VALUE;
         }
     }
 
-    public void updateMatrix() {
-/*
-        double[] Ut = U;
-        U = V;
-        V = Ut;
-*/
-        for(int y = 0; y < Ny; y++)
-        for(int x = 0; x < Nx; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                U[x+y*Nx] = V[x+y*Nx];
-            }
+    //
+    // Initialize the matrix U, V from W, i.e. the goal points are set to
+    // GOAL_VALUE, the walls to BOUNDARY_VALUE and the rest to FREE_VALUE.
+    // A subclass that keeps the field in other arrays overrides this; it
+    // is called from the constructor, after W is set.
+    //
+    void doInitField() {
+        U = new double[Nx*Ny];
+        V = new double[Nx*Ny];
+        forEachBand(Ny, (lo, hi, acc) -> {
+            for(int y = lo; y < hi; y++)
+            for(int x = 0; x < Nx; x++)
+                U[x+y*Nx] = V[x+y*Nx] = initValue(x, y);
+        });
     }
 
     //
-    // The HALF-SWEEP iterative method.
+    // Read the walls of rows y0..y1-1 straight from the raster of the
+    // common map types, i.e. a pixel is a wall if its RGB is 0 as by
+    // img.getRGB(). The packed and indexed rasters go through a table of
+    // the pixel values, the RGB rasters are tested in place, and the rest
+    // are read a row at a time.
     //
-    public void doJacobi() {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = 0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]);
+    void doReadWalls(BufferedImage img, int y0, int y1) {
+        WritableRaster raster = img.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        ColorModel cm = img.getColorModel();
+        int type = img.getType();
+        boolean direct = (raster.getSampleModelTranslateX() == 0) && (raster.getSampleModelTranslateY() == 0) &&
+                         (db.getNumBanks() == 1);
+        int off = db.getOffset();
+
+        if(direct && (db instanceof DataBufferInt) && (sm instanceof SinglePixelPackedSampleModel) &&
+           ((type == BufferedImage.TYPE_INT_RGB) || (type == BufferedImage.TYPE_INT_ARGB) || (type == BufferedImage.TYPE_INT_BGR))) {
+            int[] data = ((DataBufferInt)db).getData();
+            int ss = ((SinglePixelPackedSampleModel)sm).getScanlineStride();
+            for(int y = y0; y < y1; y++)
+            for(int x = 0; x < Nx; x++)
+                if((data[off + y*ss + x] & 0x00FFFFFF) == 0) setWall(x+y*Nx);
+        }
+        else if(direct && (db instanceof DataBufferByte) && (sm.getNumBands() == 1) && (sm.getSampleSize(0) <= 8) &&
+                (cm.getTransferType() == DataBuffer.TYPE_BYTE) &&
+                ((sm instanceof MultiPixelPackedSampleModel) || (sm instanceof ComponentSampleModel))) {
+            byte[] data = ((DataBufferByte)db).getData();
+            boolean[] wall = new boolean[1 << sm.getSampleSize(0)];
+            for(int v = 0; v < wall.length; v++)
+                wall[v] = (cm.getRGB(new byte[] {(byte)v}) & 0x00FFFFFF) == 0;
+
+            if(sm instanceof MultiPixelPackedSampleModel) {
+                MultiPixelPackedSampleModel mp = (MultiPixelPackedSampleModel)sm;
+                int bits = mp.getPixelBitStride(), ss = mp.getScanlineStride(), bit0 = mp.getDataBitOffset();
+                int mask = (1 << bits) - 1;
+                int b;
+                for(int y = y0; y < y1; y++)
+                for(int x = 0; x < Nx; x++) {
+                    b = bit0 + x*bits;
+                    if(wall[(data[off + y*ss + (b >> 3)] >> (8 - bits - (b & 7))) & mask]) setWall(x+y*Nx);
+                }
+            }
+            else {
+                ComponentSampleModel cs = (ComponentSampleModel)sm;
+                int ps = cs.getPixelStride(), ss = cs.getScanlineStride(), b0 = cs.getBandOffsets()[0];
+                for(int y = y0; y < y1; y++)
+                for(int x = 0; x < Nx; x++)
+                    if(wall[data[off + y*ss + x*ps + b0] & 0xFF]) setWall(x+y*Nx);
+            }
+        }
+        else if(direct && (db instanceof DataBufferByte) && (sm instanceof ComponentSampleModel) &&
+                ((type == BufferedImage.TYPE_3BYTE_BGR) || (type == BufferedImage.TYPE_4BYTE_ABGR))) {
+            byte[] data = ((DataBufferByte)db).getData();
+            ComponentSampleModel cs = (ComponentSampleModel)sm;
+            int ps = cs.getPixelStride(), ss = cs.getScanlineStride();
+            int[] bo = cs.getBandOffsets();
+            int p;
+            for(int y = y0; y < y1; y++)
+            for(int x = 0; x < Nx; x++) {
+                p = off + y*ss + x*ps;
+                if((data[p+bo[0]] == 0) && (data[p+bo[1]] == 0) && (data[p+bo[2]] == 0)) setWall(x+y*Nx);
+            }
+        }
+        else {
+            int[] row = new int[Nx];
+            for(int y = y0; y < y1; y++) {
+                img.getRGB(0, y, Nx, 1, row, 0, Nx);
+                for(int x = 0; x < Nx; x++)
+                    if((row[x] & 0x00FFFFFF) == 0) setWall(x+y*Nx);
             }
+        }
     }
 
-    public void doGS() {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = 0.25 * (V[x-1+y*Nx] + U[x+1+y*Nx] + V[x+(y-1)*Nx] + U[x+(y+1)*Nx]);
-            }
+    void setWall(int i) {
+        W[i] = WALL_VALUE;
+        O[i] = WALL_VALUE;
     }
 
-    public void doSOR(double w) {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (V[x-1+y*Nx] + U[x+1+y*Nx] + V[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-w)*U[x+y*Nx];
-            }
+    double initValue(int x, int y) {
+        // The outer boundary walls
+        if((x == 0) || (y == 0) || (x == Nx-1) || (y == Ny-1))
+            return BOUNDARY_VALUE;
+
+        // The goal point and its 8 nyboring points
+        if((Math.abs(x-gx) <= 1) && (Math.abs(y-gy) <= 1))
+            return GOAL_VALUE;
+
+        return (W[x+y*Nx] == WALL_VALUE) ? BOUNDARY_VALUE : FREE_VALUE;
     }
 
-    public void doAOR(double w, double r) {
+    //
+    // The active-cell index lists, i.e. the free interior nodes of each
+    // sweep. They are built once, so the kernels need no WALL or parity
+    // test. Each list is in row order, so the sweep order is unchanged.
+    //
+    public void doInitIndex() {
+        doInitRB();
+
+        // Drop everything that is built from the lists
+        levels = null;
+        qsC = qsRedC = qsBlackC = evenC = null;
+        redH = oddH = evenH = null;
+        M = MBlack = MOdd = Rc = Rn = Bc = MR = MB = null;
+        hops = null;
+        radius = null;
+        freeRows = null;
+
+        // Only the nodes that can reach the goal, see setReach()
+        A = reachable = null;
+        if(reach) A = doReach(nybors);
+
+        int nFree = 0, nRed = 0, nBlack = 0, nOdd = 0, nEven = 0;
+        int nQS = 0, nQSRed = 0, nQSBlack = 0;
         for(int y = 1; y < Ny-1; y++)
         for(int x = 1; x < Nx-1; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
+            if((W[x+y*Nx] != WALL_VALUE) && (!reach || A[x+y*Nx]))
             {
-                V[x+y*Nx] = w*0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-w)*U[x+y*Nx] +
-                            r*0.25 * (V[x-1+y*Nx] - U[x-1+y*Nx] + V[x+(y-1)*Nx] - U[x+(y-1)*Nx]);
+                ++nFree;
+                if((x+y) % 2 == 0) ++nRed; else ++nBlack;
+                if((x%2 == 1) && (y%2 == 1)) ++nOdd;
+                if((x%2 == 0) && (y%2 == 0)) {
+                    ++nEven;
+                    if((x >= 2) && (x < Nx-2) && (y >= 2) && (y < Ny-2)) {
+                        ++nQS;
+                        if(RB[x+y*Nx] == 1) ++nQSRed;
+                        if(RB[x+y*Nx] == 2) ++nQSBlack;
+                    }
+                }
             }
-    }
 
-    public void doTOR(double w, double r, double s) {
+        free = new int[nFree];
+        red = new int[nRed];
+        black = new int[nBlack];
+        odd = new int[nOdd];
+        even = new int[nEven];
+        qs = new int[nQS];
+        qsRed = new int[nQSRed];
+        qsBlack = new int[nQSBlack];
+
+        nFree = nRed = nBlack = nOdd = nEven = nQS = nQSRed = nQSBlack = 0;
         for(int y = 1; y < Ny-1; y++)
         for(int x = 1; x < Nx-1; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
+            if((W[x+y*Nx] != WALL_VALUE) && (!reach || A[x+y*Nx]))
             {
-                V[x+y*Nx] = w*0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-w)*U[x+y*Nx] +
-                            r*0.25 * (V[x-1+y  *Nx] - U[x-1+y  *Nx])+
-                            s*0.25 * (V[x+(y-1)*Nx] - U[x+(y-1)*Nx]);
+                int i = x+y*Nx;
+                free[nFree++] = i;
+                if((x+y) % 2 == 0) red[nRed++] = i; else black[nBlack++] = i;
+                if((x%2 == 1) && (y%2 == 1)) odd[nOdd++] = i;
+                if((x%2 == 0) && (y%2 == 0)) {
+                    even[nEven++] = i;
+                    if((x >= 2) && (x < Nx-2) && (y >= 2) && (y < Ny-2)) {
+                        qs[nQS++] = i;
+                        if(RB[i] == 1) qsRed[nQSRed++] = i;
+                        if(RB[i] == 2) qsBlack[nQSBlack++] = i;
+                    }
+                }
             }
     }
-    
-    
-    
+
     //
-    // The KSOR method
-    //     w = R - [-2, 0]; w < -2.0 && w > 0
+    // The reachability pre-pass. The free nodes that are cut off from the
+    // goal, e.g. closed rooms, never touch the path, but they still cost
+    // every sweep and weigh in the convergence check. With reach on they
+    // are left out of the lists, so every method skips them and they keep
+    // their FREE_VALUE. The nodes that are kept see the same nybors as
+    // before, so their field is the same; only the error is taken over
+    // fewer nodes.
     //
-    public void doKSOR(double w) {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = (1./(1.+w)) * (w*0.25 * (V[x-1+y*Nx] + U[x+1+y*Nx] + V[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + U[x+y*Nx]);
-                
-				//V[x+y*Nx] = (1./(1.+w)) * U[x+y*Nx] + (w/(1.+w)) * 0.25 * (V[(x-1)+y*Nx] + V[x+(y-1)*Nx] + U[(x+1)+y*Nx] + U[x+(y+1)*Nx]);
-                
-            }
+    public void setReach(boolean reach) {
+        sync();
+        unpack();
+        this.reach = reach;
+        doInitIndex();
     }
 
-    //
-    // The HSKSOR method
-    //
-    public void doHSKSOR(double w) {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(((x+y) % 2) == 0)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = (1./(1.+w)) * (w*0.25 * (V[x-1+(y-1)*Nx] + V[x+1+(y-1)*Nx] + U[x-1+(y+1)*Nx] + U[x+1+(y+1)*Nx]) + U[x+y*Nx]);
-            }
+    // Can the GDS from x, y reach the goal at all? This is known before
+    // any solve(), whether reach is on or not.
+    public boolean isReachable(int x, int y) {
+        if(reachable == null) reachable = doReach(hop);
+        return reachable[x+y*Nx];
     }
-    
+
     //
-    // The QSKSOR method
+    // Flood the free nodes from the goal points over the given nybors.
+    // The GDS steps to its 8 nybors only, but the lists are flooded over
+    // the nybors of every stencil, i.e. also the 2 apart of the
+    // QUARTER-SWEEP, so no kept node reads a node that is left out. So a
+    // room behind a wall of one node is still iterated.
     //
-    public void doQSKSOR(double w) {
-        for(int y = 2; y < Ny-2; y++)
-        for(int x = 2; x < Nx-2; x++)
-            if((x%2 == 0) && (y%2 == 0))
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = (1./(1.+w)) * (w*0.25 * (V[x-2+y*Nx] + U[x+2+y*Nx] + V[x+(y-2)*Nx] + U[x+(y+2)*Nx]) + U[x+y*Nx]);
+    boolean[] doReach(int[] off) {
+        boolean[] R = new boolean[Nx*Ny];
+        int[] queue = new int[Nx*Ny];
+        int head = 0, tail = 0;
+        int i, j;
+
+        for(int y = gy-1; y <= gy+1; y++)
+        for(int x = gx-1; x <= gx+1; x++) {
+            R[x+y*Nx] = true;
+            queue[tail++] = x+y*Nx;
+        }
+
+        while(head < tail) {
+            i = queue[head++];
+            for(int k = 0; k < off.length; k++) {
+                j = i + off[k];
+                if((j < 0) || (j >= R.length) || R[j] || (W[j] == WALL_VALUE)) continue;
+                R[j] = true;
+                queue[tail++] = j;
             }
+        }
+        return R;
     }
-    
-    
-    
-    
-    //
-    //
-    // The KAOR method
+
     //
+    // Run the red-black kernels on the given pool, or serially if null.
+    // Each colour pass is a barrier, so the result is bit-identical.
     //
-    public void doKAOR(double w, double r) {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-				V[x+y*Nx] = ((1.+r-w)/(1.+r)) * U[x+y*Nx] + 
-							(w /(1.+r)) * 0.25 * (U[(x-1)+y*Nx] + U[x+(y-1)*Nx] + U[(x+1)+y*Nx] + U[x+(y+1)*Nx]) +
-							(r /(1.+r)) * 0.25 * (V[(x-1)+y*Nx] - U[(x-1)+y*Nx] + V[x+(y-1)*Nx] - U[x+(y-1)*Nx]);
-            }
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
     }
 
+    void forEachBand(int[] idx, Band band) {
+        forEachBand(idx.length, band);
+    }
 
+    void forEachBand(int n, Band band) {
+        if(pool == null) {
+            band.run(0, n, acc);
+            return;
+        }
 
+        // A fixed number of parts, so the residual is summed in a fixed order
+        int parts = Math.max(1, Math.min(4*pool.getParallelism(), n / 16));
+        Residual[] res = new Residual[parts];
+        if(acc != null)
+            for(int j = 0; j < parts; j++) res[j] = new Residual(acc.relative);
 
-    
+        pool.invoke(new BandTask(band, n, parts, res, 0, parts));
 
-    //
-    // The HALF-SWEEP iterative method.
-    //
-    public void doHSSOR(double w) {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(((x+y) % 2) == 0)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (V[x-1+(y-1)*Nx] + V[x+1+(y-1)*Nx] + U[x-1+(y+1)*Nx] + U[x+1+(y+1)*Nx]) + (1-w)*U[x+y*Nx];
-            }
+        if(acc != null)
+            for(int j = 0; j < parts; j++) acc.merge(res[j]);
     }
 
-    public void doFillHS() {
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(((x+y) % 2) == 1)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = 0.25 * (V[x-1+y*Nx] + V[x+1+y*Nx] + V[x+(y-1)*Nx] + V[x+(y+1)*Nx]);
+    static class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        Band band;
+        int n, parts;
+        Residual[] res;
+        int c0, c1;
+
+        BandTask(Band band, int n, int parts, Residual[] res, int c0, int c1) {
+            this.band = band;
+            this.n = n;
+            this.parts = parts;
+            this.res = res;
+            this.c0 = c0;
+            this.c1 = c1;
+        }
+
+        protected void compute() {
+            if(c1 - c0 == 1) {
+                band.run((int)((long)c0*n/parts), (int)((long)c1*n/parts), res[c0]);
+                return;
             }
+            int cm = (c0 + c1) >>> 1;
+            invokeAll(new BandTask(band, n, parts, res, c0, cm), new BandTask(band, n, parts, res, cm, c1));
+        }
     }
 
     //
-    // The QUARTER-SWEEP iterative method.
+    // The convergence measure of one sweep over the nodes that have
+    // changed, i.e. the sum, the sum of squares and the maximum of the
+    // error of each node. See Convergence for the reduction.
     //
-    public void doQSSOR(double w) {
-        for(int y = 2; y < Ny-2; y++)
-        for(int x = 2; x < Nx-2; x++)
-            if((x%2 == 0) && (y%2 == 0))
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (V[x-2+y*Nx] + U[x+2+y*Nx] + V[x+(y-2)*Nx] + U[x+(y+2)*Nx]) + (1-w)*U[x+y*Nx];
-            }
-    }
+    static class Residual {
+        boolean relative;
+        double err, sq, max;
+        int k;
 
-    public void doFillQS() {
-        // Compute WHITE Square, i.e. x and y are ODD
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x%2 == 1) && (y%2 == 1))
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = 0.25 * (V[x-1+(y-1)*Nx] + V[x+1+(y-1)*Nx] + V[x-1+(y+1)*Nx] + V[x+1+(y+1)*Nx]);
-            }
+        Residual(boolean relative) {
+            this.relative = relative;
+        }
 
-        // Compute WHITE Dot, i.e. x ODD and y EVEN or otherwise
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++) {
-            if((x%2 == 1) && (y%2 == 1)) continue;
-            if((x%2 == 0) && (y%2 == 0)) continue;
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = 0.25 * (V[x-1+y*Nx] + V[x+1+y*Nx] + V[x+(y-1)*Nx] + V[x+(y+1)*Nx]);
+        void add(double u, double v) {
+            if(u != v) {
+                double e = relative ? Math.abs(1-u/v) : Math.abs(v-u);
+                err += e;
+                sq += e*e;
+                if(!(e <= max)) max = e;
+                ++k;
             }
         }
+
+        void merge(Residual r) {
+            err += r.err;
+            sq += r.sq;
+            if(!(r.max <= max)) max = r.max;
+            k += r.k;
+        }
+    }
+
+    public void setConvergence(Convergence convergence) {
+        this.convergence = convergence;
     }
 
     //
-    // The Modified SOR
+    // The metrics of a solve(). The kernel time is the sweeps; with the
+    // fused step() that holds the per-node part of the convergence
+    // measure as well, so the check time is only the reduction of the
+    // measure into the error. The copy time is the sync() and the fill of
+    // the skipped nodes after the iteration, and the promote() of the
+    // mixed mode. The error of every check is kept in the history, at
+    // most HISTORY_SIZE of them: when it is full every other one is
+    // dropped and from then on only every stride-th check is kept.
     //
-    public void doMSOR(double w, double ww) {
-        // Compute the RED nodes
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x+y) % 2 == 0)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-w)*U[x+y*Nx];
-            }
+    public static class Stats {
+        static final int HISTORY_SIZE = 4096;
+
+        public String method;
+        public int nodes;
+        public int iterations, checks;
+        public long updates;
+        public long kernelNanos, checkNanos, copyNanos, elapsedNanos;
+        public double residual = Double.NaN;
+        public boolean converged;
+        public long bytes;
+
+        int[] at = new int[HISTORY_SIZE];
+        double[] history = new double[HISTORY_SIZE];
+        int size;
+        int stride = 1;
+
+        Stats(String method, int nodes) {
+            this.method = method;
+            this.nodes = nodes;
+        }
 
-        // Compute the BLACK nodes
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x+y) % 2 == 1)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = ww*0.25 * (V[x-1+y*Nx] + V[x+1+y*Nx] + V[x+(y-1)*Nx] + V[x+(y+1)*Nx]) + (1-ww)*U[x+y*Nx];
+        void add(int iteration, double e) {
+            residual = e;
+            if(checks++ % stride != 0) return;
+            if(size == HISTORY_SIZE) {
+                for(int k = 0; k < size/2; k++) {
+                    at[k] = at[2*k];
+                    history[k] = history[2*k];
+                }
+                size /= 2;
+                stride *= 2;
+                if((checks-1) % stride != 0) return;
             }
-    }
+            at[size] = iteration;
+            history[size++] = e;
+        }
 
-    public void doMAOR(double w, double ww, double r) {
-        // Compute the RED nodes
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x+y) % 2 == 0)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = ww*0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-ww)*U[x+y*Nx];
-            }
+        // The node updates per second of the whole solve
+        public double updatesPerSecond() {
+            return (elapsedNanos > 0) ? updates * 1.0e9 / elapsedNanos : 0;
+        }
 
-        // Compute the BLACK nodes
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x+y) % 2 == 1)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] =  w*0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-w)*U[x+y*Nx] +
-                             r*0.25 * (V[x-1+y*Nx] - U[x-1+y*Nx] + V[x+(y-1)*Nx] - U[x+(y-1)*Nx] +
-                                       V[x+1+y*Nx] - U[x+1+y*Nx] + V[x+(y+1)*Nx] - U[x+(y+1)*Nx]);
-            }
-    }
+        // The iterations of the kept errors, and the errors
+        public int[] iterations() {
+            return Arrays.copyOf(at, size);
+        }
 
+        public double[] residuals() {
+            return Arrays.copyOf(history, size);
+        }
+    }
 
+    //
+    // Called on the solving thread, after every step() that checks the
+    // convergence and once more when solve() is done. The Stats are
+    // the live ones, so copy what has to be kept.
+    //
+    public interface Listener {
+        void onIteration(Solver solver, Stats stats);
+        void onSolve(Solver solver, Stats stats);
+    }
 
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
 
     //
-    // The HALF-SWEEP Modified SOR
+    // The JFR events, recorded with e.g. -XX:StartFlightRecording when
+    // the events are enabled. Solver.Iteration is sampled at the checks.
     //
-    public void doHSMSOR(double w, double ww) {
-        // Compute the RED nodes
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x%2 == 1) && (y%2 == 1))
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (U[x-1+(y-1)*Nx] + U[x+1+(y-1)*Nx] + U[x-1+(y+1)*Nx] + U[x+1+(y+1)*Nx]) + (1-w)*U[x+y*Nx];
-            }
-
-        // Compute the BLACK nodes
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x%2 == 0) && (y%2 == 0))
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = ww*0.25 * (V[x-1+(y-1)*Nx] + V[x+1+(y-1)*Nx] + V[x-1+(y+1)*Nx] + V[x+1+(y+1)*Nx]) + (1-ww)*U[x+y*Nx];
-            }
+    @Name("Solver.Solve")
+    @Label("Solve")
+    @Category("Path Planning")
+    @Description("One solve() of the potential field")
+    static class SolveEvent extends Event {
+        @Label("Method") String method;
+        @Label("Width") int width;
+        @Label("Height") int height;
+        @Label("Nodes") int nodes;
+        @Label("Iterations") int iterations;
+        @Label("Converged") boolean converged;
+        @Label("Residual") double residual;
+        @Label("Updates") long updates;
+        @Label("Updates Per Second") double updatesPerSecond;
+        @Label("Kernel Nanos") long kernelNanos;
+        @Label("Check Nanos") long checkNanos;
+        @Label("Copy Nanos") long copyNanos;
+        @Label("Footprint") long bytes;
     }
 
+    @Name("Solver.Iteration")
+    @Label("Iteration")
+    @Category("Path Planning")
+    @Description("The error at a convergence check")
+    static class IterationEvent extends Event {
+        @Label("Method") String method;
+        @Label("Iteration") int iteration;
+        @Label("Residual") double residual;
+    }
 
     //
-    // The QUARTER-SWEEP Modified SOR.
+    // The fused iteration. The sweep measures the convergence as it goes,
+    // and U and V are swapped instead of copied, so one iteration is one
+    // pass over the grid instead of three. After a swap U holds the
+    // latest iterate; sync() copies it to V when the field is needed.
+    // If check is false the sweep skips the measure and never converges.
     //
-    public void doInitRB()
-    {
-        // Let all be WHITE nodes
-        for(int y = 0; y < Ny; y++)
-        for(int x = 0; x < Nx; x++)
-            RB[x+y*Nx] = 0;
-
-        for(int y = 2; y < Ny-2; y+=4)
-        for(int x = 2; x < Nx-2; x+=4) {
-            RB[x+y*Nx] = 1;
-            RB[x+2+(y+2)*Nx] = 1;
+    public boolean step(String method, double w, double ww, double r, double s, double t, double u) {
+        return step(method, w, ww, r, s, t, u, true);
+    }
 
-            RB[x+2+y*Nx] = 2;
-            RB[x+(y+2)*Nx] = 2;
+    public boolean step(String method, double w, double ww, double r, double s, double t, double u, boolean check) {
+        long t0 = (live != null) ? System.nanoTime() : 0;
+        acc = check ? new Residual(convergence.relative) : null;
+        try {
+            iterate(method, w, ww, r, s, t, u);
         }
-/*
-        for(int y = 0; y < Ny; y++) {
-            for(int x = 0; x < Nx; x++)
-                System.out.print(String.format("%d", RB[x+y*Nx]));
-            System.out.println();
+        finally {
+            swap();
+            stale = true;
         }
-*/
+        long t1 = (live != null) ? System.nanoTime() : 0;
+
+        boolean done = false;
+        if(acc != null) {
+            residual = convergence.error(acc);
+            acc = null;
+            done = convergence.isConverged(residual);
+        }
+        if(live != null) sample(check, t0, t1);
+        return done;
     }
 
-    public void doQSMSOR(double w, double ww) {
-        // Compute the RED nodes
-        for(int y = 2; y < Ny-2; y++)
-        for(int x = 2; x < Nx-2; x++)
-            if(RB[x+y*Nx] == 1)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (U[x-2+y*Nx] + U[x+2+y*Nx] + U[x+(y-2)*Nx] + U[x+(y+2)*Nx]) + (1-w)*U[x+y*Nx];
-            }
+    void sample(boolean check, long t0, long t1) {
+        Stats st = live;
+        st.iterations++;
+        st.updates += st.nodes;
+        st.kernelNanos += t1 - t0;
+        st.checkNanos += System.nanoTime() - t1;
+        if(check) observe(st);
+    }
 
-        // Compute the BLACK nodes
-        for(int y = 2; y < Ny-2; y++)
-        for(int x = 2; x < Nx-2; x++)
-            if(RB[x+y*Nx] == 2)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = ww*0.25 * (V[x-2+y*Nx] + V[x+2+y*Nx] + V[x+(y-2)*Nx] + V[x+(y+2)*Nx]) + (1-ww)*U[x+y*Nx];
-            }
+    // The error of a check into the Stats, the JFR event and the listener
+    void observe(Stats st) {
+        st.add(st.iterations, residual);
+        IterationEvent e = new IterationEvent();
+        if(e.isEnabled()) {
+            e.method = st.method;
+            e.iteration = st.iterations;
+            e.residual = residual;
+            e.commit();
+        }
+        if(listener != null) listener.onIteration(this, st);
     }
 
+    // The cancel() or the budget of the SolveTask, if any
+    boolean isStopped() {
+        return task != null && task.isStopped(live.iterations);
+    }
+
+    //
+    // Solve on the executor, see SolveTask. With p null the parameters
+    // are those of tune().
+    //
+    public SolveTask solveAsync(Executor executor, String method, double[] p, int maxIterations, long timeout, Listener listener) {
+        return new SolveTask(this, method, p, maxIterations, timeout, listener).start(executor);
+    }
+
+    void copied(long t0) {
+        if(live != null) live.copyNanos += System.nanoTime() - t0;
+    }
+
+    void swap() {
+        double[] t;
+        if(packed == COLOUR) return;
+        if(packed != 0) {
+            t = Uc; Uc = Vc; Vc = t;
+        }
+        else {
+            t = U; U = V; V = t;
+        }
+    }
+
+    public void sync() {
+        if(!stale) return;
+        if(packed == COLOUR) {
+            unpack();
+            return;
+        }
+        swap();
+        updateMatrix();
+        stale = false;
+    }
+
+    public void updateMatrix() {
+/*
+        double[] Ut = U;
+        U = V;
+        V = Ut;
+*/
+        int i;
+        if(packed == COLOUR) return;
+        if(packed == QUARTER_SWEEP) {
+            for(int k = 0; k < evenC.length; k++) {
+                i = evenC[k];
+                Uc[i] = Vc[i];
+            }
+            return;
+        }
+        if(packed == HALF_SWEEP) {
+            for(int k = 0; k < redH.length; k++) {
+                i = redH[k] >> 1;
+                Uc[i] = Vc[i];
+            }
+            return;
+        }
+
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            U[i] = V[i];
+        }
+    }
+
+    //
+    // The HALF-SWEEP iterative method.
+    //
+    public void doJacobi() {
+        if(vector) {
+            doJacobiV();
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            V[i] = 0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    public void doGS() {
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            V[i] = 0.25 * (V[i-1] + U[i+1] + V[i-Nx] + U[i+Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    public void doSOR(double w) {
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            V[i] = w*0.25 * (V[i-1] + U[i+1] + V[i-Nx] + U[i+Nx]) + (1-w)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    public void doAOR(double w, double r) {
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            V[i] = w*0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]) + (1-w)*U[i] +
+                   r*0.25 * (V[i-1] - U[i-1] + V[i-Nx] - U[i-Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    public void doTOR(double w, double r, double s) {
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            V[i] = w*0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]) + (1-w)*U[i] +
+                   r*0.25 * (V[i-1 ] - U[i-1 ])+
+                   s*0.25 * (V[i-Nx] - U[i-Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+
+
+    //
+    // The KSOR method
+    //     w = R - [-2, 0]; w < -2.0 && w > 0
+    //
+    public void doKSOR(double w) {
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            V[i] = (1./(1.+w)) * (w*0.25 * (V[i-1] + U[i+1] + V[i-Nx] + U[i+Nx]) + U[i]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    //
+    // The HSKSOR method
+    //
+    public void doHSKSOR(double w) {
+        if(packed == HALF_SWEEP) {
+            doHSKSORC(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < red.length; k++) {
+            i = red[k];
+            V[i] = (1./(1.+w)) * (w*0.25 * (V[i-1-Nx] + V[i+1-Nx] + U[i-1+Nx] + U[i+1+Nx]) + U[i]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    //
+    // The QSKSOR method
+    //
+    public void doQSKSOR(double w) {
+        if(packed == QUARTER_SWEEP) {
+            doQSKSORC(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < qs.length; k++) {
+            i = qs[k];
+            V[i] = (1./(1.+w)) * (w*0.25 * (V[i-2] + U[i+2] + V[i-2*Nx] + U[i+2*Nx]) + U[i]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+
+
+    //
+    //
+    // The KAOR method
+    //
+    //
+    public void doKAOR(double w, double r) {
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < free.length; k++) {
+            i = free[k];
+            V[i] = ((1.+r-w)/(1.+r)) * U[i] +
+                   (w /(1.+r)) * 0.25 * (U[i-1] + U[i-Nx] + U[i+1] + U[i+Nx]) +
+                   (r /(1.+r)) * 0.25 * (V[i-1] - U[i-1] + V[i-Nx] - U[i-Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+
+
+    //
+    // The HALF-SWEEP iterative method.
+    //
+    public void doHSSOR(double w) {
+        if(packed == HALF_SWEEP) {
+            doHSSORC(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < red.length; k++) {
+            i = red[k];
+            V[i] = w*0.25 * (V[i-1-Nx] + V[i+1-Nx] + U[i-1+Nx] + U[i+1+Nx]) + (1-w)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    public void doFillHS() {
+        sync();
+        unpack();
+        if(vector) {
+            doFillHSV();
+            return;
+        }
+
+        int i;
+        for(int k = 0; k < black.length; k++) {
+            i = black[k];
+            V[i] = 0.25 * (V[i-1] + V[i+1] + V[i-Nx] + V[i+Nx]);
+        }
+    }
+
+    //
+    // The QUARTER-SWEEP iterative method.
+    //
+    public void doQSSOR(double w) {
+        if(packed == QUARTER_SWEEP) {
+            doQSSORC(w);
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+        for(int k = 0; k < qs.length; k++) {
+            i = qs[k];
+            V[i] = w*0.25 * (V[i-2] + U[i+2] + V[i-2*Nx] + U[i+2*Nx]) + (1-w)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    public void doFillQS() {
+        sync();
+        unpack();
+        if(vector) {
+            doFillQSV();
+            return;
+        }
+
+        int i;
+
+        // Compute WHITE Square, i.e. x and y are ODD
+        for(int k = 0; k < odd.length; k++) {
+            i = odd[k];
+            V[i] = 0.25 * (V[i-1-Nx] + V[i+1-Nx] + V[i-1+Nx] + V[i+1+Nx]);
+        }
+
+        // Compute WHITE Dot, i.e. x ODD and y EVEN or otherwise
+        for(int k = 0; k < black.length; k++) {
+            i = black[k];
+            V[i] = 0.25 * (V[i-1] + V[i+1] + V[i-Nx] + V[i+Nx]);
+        }
+    }
+
+    //
+    // The Modified SOR
+    //
+    public void doMSOR(double w, double ww) {
+        if(packed == COLOUR) {
+            doMSORV(w, ww);
+            return;
+        }
 
-    public void doQSMAOR(double w, double ww, double r) {
         // Compute the RED nodes
-        for(int y = 2; y < Ny-2; y++)
-        for(int x = 2; x < Nx-2; x++)
-            if(RB[x+y*Nx] == 1)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = ww*0.25 * (U[x-2+y*Nx] + U[x+2+y*Nx] + U[x+(y-2)*Nx] + U[x+(y+2)*Nx]) + (1-ww)*U[x+y*Nx];
+        forEachBand(red, (lo, hi, acc) -> doMSORRed(w, lo, hi, acc));
+
+        // Compute the BLACK nodes
+        forEachBand(black, (lo, hi, acc) -> doMSORBlack(ww, lo, hi, acc));
+    }
+
+    void doMSORRed(double w, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = red[k];
+            V[i] = w*0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]) + (1-w)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    void doMSORBlack(double ww, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = black[k];
+            V[i] = ww*0.25 * (V[i-1] + V[i+1] + V[i-Nx] + V[i+Nx]) + (1-ww)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    public void doMAOR(double w, double ww, double r) {
+        if(packed == COLOUR) {
+            doMAORV(w, ww, r);
+            return;
+        }
+
+        // Compute the RED nodes
+        forEachBand(red, (lo, hi, acc) -> doMSORRed(ww, lo, hi, acc));
+
+        // Compute the BLACK nodes
+        forEachBand(black, (lo, hi, acc) -> doMAORBlack(w, r, lo, hi, acc));
+    }
+
+    void doMAORBlack(double w, double r, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = black[k];
+            V[i] =  w*0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]) + (1-w)*U[i] +
+                    r*0.25 * (V[i-1] - U[i-1] + V[i-Nx] - U[i-Nx] +
+                              V[i+1] - U[i+1] + V[i+Nx] - U[i+Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+
+
+
+    //
+    // The HALF-SWEEP Modified SOR
+    //
+    public void doHSMSOR(double w, double ww) {
+        if(packed == HALF_SWEEP) {
+            doHSMSORC(w, ww);
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+
+        // Compute the RED nodes
+        for(int k = 0; k < odd.length; k++) {
+            i = odd[k];
+            V[i] = w*0.25 * (U[i-1-Nx] + U[i+1-Nx] + U[i-1+Nx] + U[i+1+Nx]) + (1-w)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < even.length; k++) {
+            i = even[k];
+            V[i] = ww*0.25 * (V[i-1-Nx] + V[i+1-Nx] + V[i-1+Nx] + V[i+1+Nx]) + (1-ww)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+
+    //
+    // The QUARTER-SWEEP Modified SOR.
+    //
+    public void doInitRB()
+    {
+        // Let all be WHITE nodes
+        for(int y = 0; y < Ny; y++)
+        for(int x = 0; x < Nx; x++)
+            RB[x+y*Nx] = 0;
+
+        for(int y = 2; y < Ny-2; y+=4)
+        for(int x = 2; x < Nx-2; x+=4) {
+            RB[x+y*Nx] = 1;
+            RB[x+2+(y+2)*Nx] = 1;
+
+            RB[x+2+y*Nx] = 2;
+            RB[x+(y+2)*Nx] = 2;
+        }
+/*
+        for(int y = 0; y < Ny; y++) {
+            for(int x = 0; x < Nx; x++)
+                System.out.print(String.format("%d", RB[x+y*Nx]));
+            System.out.println();
+        }
+*/
+    }
+
+    public void doQSMSOR(double w, double ww) {
+        if(packed == QUARTER_SWEEP) {
+            doQSMSORC(w, ww);
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+
+        // Compute the RED nodes
+        for(int k = 0; k < qsRed.length; k++) {
+            i = qsRed[k];
+            V[i] = w*0.25 * (U[i-2] + U[i+2] + U[i-2*Nx] + U[i+2*Nx]) + (1-w)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < qsBlack.length; k++) {
+            i = qsBlack[k];
+            V[i] = ww*0.25 * (V[i-2] + V[i+2] + V[i-2*Nx] + V[i+2*Nx]) + (1-ww)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+
+    public void doQSMAOR(double w, double ww, double r) {
+        if(packed == QUARTER_SWEEP) {
+            doQSMAORC(w, ww, r);
+            return;
+        }
+
+        Residual acc = this.acc;
+        int i;
+
+        // Compute the RED nodes
+        for(int k = 0; k < qsRed.length; k++) {
+            i = qsRed[k];
+            V[i] = ww*0.25 * (U[i-2] + U[i+2] + U[i-2*Nx] + U[i+2*Nx]) + (1-ww)*U[i];
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < qsBlack.length; k++) {
+            i = qsBlack[k];
+            V[i] =  w*0.25 * (U[i-2] + U[i+2] + U[i-2*Nx] + U[i+2*Nx]) + (1-w)*U[i] +
+                    r*0.25 * (V[i-2] - U[i-2] + V[i-2*Nx] - U[i-2*Nx] +
+                              V[i+2] - U[i+2] + V[i+2*Nx] - U[i+2*Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+
+
+    //
+    // The novelty: Quad-Parameter Overrelaxation (also known as Red-Black QOR)
+    //
+    public void doQOR(double w, double r, double s, double t, double u) {
+        if(packed == COLOUR) {
+            doQORV(w, r, s, t, u);
+            return;
+        }
+
+        // The RED nodes
+        forEachBand(red, (lo, hi, acc) -> doMSORRed(w, lo, hi, acc));
+
+        // The BLACK nodes
+        forEachBand(black, (lo, hi, acc) -> doQORBlack(w, r, s, t, u, lo, hi, acc));
+    }
+
+    void doQORBlack(double w, double r, double s, double t, double u, int lo, int hi, Residual acc) {
+        int i;
+        for(int k = lo; k < hi; k++) {
+            i = black[k];
+            V[i] = w*0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]) + (1-w)*U[i] +
+                   r*0.25 * (V[i-1 ] - U[i-1 ])+
+                   s*0.25 * (V[i+1 ] - U[i+1 ])+
+                   t*0.25 * (V[i-Nx] - U[i-Nx])+
+                   u*0.25 * (V[i+Nx] - U[i+Nx]);
+            if(acc != null) acc.add(U[i], V[i]);
+        }
+    }
+
+    //
+    // The COMPACT storage. While a HALF-SWEEP or QUARTER-SWEEP method
+    // iterates, only its own nodes are packed densely into Uc and Vc,
+    // i.e. the QUARTER-SWEEP nodes as a (Nx+1)/2 by (Ny+1)/2 coarse grid
+    // and the HALF-SWEEP nodes as rows of (Nx+1)/2 nodes each. The fill
+    // passes scatter the nodes back to U and V first.
+    //
+    // A HALF-SWEEP packed index is stored as (p << 1) | (y & 1), since
+    // the diagonal neighbours of p are shifted by one on the even rows.
+    //
+    public void setCompact(boolean compact) {
+        if(!compact) unpack();
+        this.compact = compact;
+    }
+
+    public void pack(int sweep) {
+        if(packed == sweep) return;
+        unpack();
+        if(sweep == FULL_SWEEP) return;
+        if(sweep == COLOUR) {
+            sync();
+            doPackColour();
+            packed = sweep;
+            return;
+        }
+
+        Cx = (Nx+1)/2;
+        int Cy = (sweep == QUARTER_SWEEP) ? (Ny+1)/2 : Ny;
+        if(Uc == null || Uc.length < Cx*Cy) {
+            Uc = new double[Cx*Cy];
+            Vc = new double[Cx*Cy];
+        }
+
+        if(sweep == QUARTER_SWEEP) {
+            if(qsC == null) {
+                qsC      = doPackIndex(qs, sweep);
+                qsRedC   = doPackIndex(qsRed, sweep);
+                qsBlackC = doPackIndex(qsBlack, sweep);
+                evenC    = doPackIndex(even, sweep);
+            }
+            for(int y = 0; y < Ny; y+=2)
+            for(int x = 0; x < Nx; x+=2) {
+                Uc[(x>>1)+(y>>1)*Cx] = U[x+y*Nx];
+                Vc[(x>>1)+(y>>1)*Cx] = V[x+y*Nx];
+            }
+        }
+        else {
+            if(redH == null) {
+                redH  = doPackIndex(red, sweep);
+                oddH  = doPackIndex(odd, sweep);
+                evenH = doPackIndex(even, sweep);
+            }
+            for(int y = 0; y < Ny; y++)
+            for(int x = (y & 1); x < Nx; x+=2) {
+                Uc[(x>>1)+y*Cx] = U[x+y*Nx];
+                Vc[(x>>1)+y*Cx] = V[x+y*Nx];
+            }
+        }
+        packed = sweep;
+    }
+
+    public void unpack() {
+        if(packed == 0) return;
+        if(packed == COLOUR) {
+            doUnpackColour();
+            packed = 0;
+            return;
+        }
+
+        int[] idx = (packed == QUARTER_SWEEP) ? evenC : redH;
+        int[] full = (packed == QUARTER_SWEEP) ? even : red;
+        int shift = (packed == QUARTER_SWEEP) ? 0 : 1;
+        for(int k = 0; k < idx.length; k++) {
+            U[full[k]] = Uc[idx[k] >> shift];
+            V[full[k]] = Vc[idx[k] >> shift];
+        }
+        packed = 0;
+    }
+
+    int[] doPackIndex(int[] idx, int sweep) {
+        int[] pk = new int[idx.length];
+        for(int k = 0; k < idx.length; k++) {
+            int x = idx[k] % Nx;
+            int y = idx[k] / Nx;
+            if(sweep == QUARTER_SWEEP)
+                pk[k] = (x>>1) + (y>>1)*Cx;
+            else
+                pk[k] = (((x>>1) + y*Cx) << 1) | (y & 1);
+        }
+        return pk;
+    }
+
+    void doQSSORC(double w) {
+        Residual acc = this.acc;
+        int p;
+        for(int k = 0; k < qsC.length; k++) {
+            p = qsC[k];
+            Vc[p] = w*0.25 * (Vc[p-1] + Uc[p+1] + Vc[p-Cx] + Uc[p+Cx]) + (1-w)*Uc[p];
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+    }
+
+    void doQSKSORC(double w) {
+        Residual acc = this.acc;
+        int p;
+        for(int k = 0; k < qsC.length; k++) {
+            p = qsC[k];
+            Vc[p] = (1./(1.+w)) * (w*0.25 * (Vc[p-1] + Uc[p+1] + Vc[p-Cx] + Uc[p+Cx]) + Uc[p]);
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+    }
+
+    void doQSMSORC(double w, double ww) {
+        Residual acc = this.acc;
+        int p;
+
+        // Compute the RED nodes
+        for(int k = 0; k < qsRedC.length; k++) {
+            p = qsRedC[k];
+            Vc[p] = w*0.25 * (Uc[p-1] + Uc[p+1] + Uc[p-Cx] + Uc[p+Cx]) + (1-w)*Uc[p];
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < qsBlackC.length; k++) {
+            p = qsBlackC[k];
+            Vc[p] = ww*0.25 * (Vc[p-1] + Vc[p+1] + Vc[p-Cx] + Vc[p+Cx]) + (1-ww)*Uc[p];
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+    }
+
+    void doQSMAORC(double w, double ww, double r) {
+        Residual acc = this.acc;
+        int p;
+
+        // Compute the RED nodes
+        for(int k = 0; k < qsRedC.length; k++) {
+            p = qsRedC[k];
+            Vc[p] = ww*0.25 * (Uc[p-1] + Uc[p+1] + Uc[p-Cx] + Uc[p+Cx]) + (1-ww)*Uc[p];
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < qsBlackC.length; k++) {
+            p = qsBlackC[k];
+            Vc[p] =  w*0.25 * (Uc[p-1] + Uc[p+1] + Uc[p-Cx] + Uc[p+Cx]) + (1-w)*Uc[p] +
+                     r*0.25 * (Vc[p-1] - Uc[p-1] + Vc[p-Cx] - Uc[p-Cx] +
+                               Vc[p+1] - Uc[p+1] + Vc[p+Cx] - Uc[p+Cx]);
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+    }
+
+    void doHSSORC(double w) {
+        Residual acc = this.acc;
+        int e, p, n, s;
+        for(int k = 0; k < redH.length; k++) {
+            e = redH[k];
+            p = e >> 1;
+            n = p - Cx + (e & 1) - 1;
+            s = p + Cx + (e & 1) - 1;
+            Vc[p] = w*0.25 * (Vc[n] + Vc[n+1] + Uc[s] + Uc[s+1]) + (1-w)*Uc[p];
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+    }
+
+    void doHSKSORC(double w) {
+        Residual acc = this.acc;
+        int e, p, n, s;
+        for(int k = 0; k < redH.length; k++) {
+            e = redH[k];
+            p = e >> 1;
+            n = p - Cx + (e & 1) - 1;
+            s = p + Cx + (e & 1) - 1;
+            Vc[p] = (1./(1.+w)) * (w*0.25 * (Vc[n] + Vc[n+1] + Uc[s] + Uc[s+1]) + Uc[p]);
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+    }
+
+    void doHSMSORC(double w, double ww) {
+        Residual acc = this.acc;
+        int e, p, n, s;
+
+        // Compute the RED nodes
+        for(int k = 0; k < oddH.length; k++) {
+            e = oddH[k];
+            p = e >> 1;
+            n = p - Cx + (e & 1) - 1;
+            s = p + Cx + (e & 1) - 1;
+            Vc[p] = w*0.25 * (Uc[n] + Uc[n+1] + Uc[s] + Uc[s+1]) + (1-w)*Uc[p];
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+
+        // Compute the BLACK nodes
+        for(int k = 0; k < evenH.length; k++) {
+            e = evenH[k];
+            p = e >> 1;
+            n = p - Cx + (e & 1) - 1;
+            s = p + Cx + (e & 1) - 1;
+            Vc[p] = ww*0.25 * (Vc[n] + Vc[n+1] + Vc[s] + Vc[s+1]) + (1-ww)*Uc[p];
+            if(acc != null) acc.add(Uc[p], Vc[p]);
+        }
+    }
+
+    //
+    // The VECTOR kernels, i.e. branch-free loops over contiguous rows that
+    // the JIT compiles to SIMD code. The WALL test is replaced by a mask M
+    // of 1.0 (free) and 0.0 (wall), and a node is set to
+    //     M*new + (1-M)*old
+    // which is exactly new or old, so the fields are bit-identical to the
+    // scalar kernels. JACOBI and the fills run on U and V. MSOR, MAOR and
+    // QOR run on colour-packed rows, i.e. the RED and BLACK nodes of row y
+    // are stored apart at (x>>1) + y*H, so that each colour pass is unit
+    // stride. The old RED nodes are kept in Rc and the new in Rn.
+    //
+    // A measured sweep, i.e. with a Residual, runs the same arithmetic in
+    // a scalar loop, so set a Convergence interval to keep most sweeps on
+    // the SIMD path.
+    //
+    public void setVector(boolean vector) {
+        if(!vector && packed == COLOUR) unpack();
+        this.vector = vector;
+    }
+
+    //
+    // The temporally tiled mode of GS, SOR and KSOR. Each pass over the
+    // grid applies the given number of sweeps, as a wavefront of rows:
+    // sweep k+1 updates row y once sweep k is done with row y+1, so the
+    // pass keeps about 2*sweeps rows in cache instead of streaming the
+    // whole grid once per sweep. Every sweep still sees the new values
+    // above and to the left and the old ones below and to the right, so
+    // after n sweeps the field is bit-identical to that of n untiled
+    // sweeps, and each sweep is measured as usual. The solve can only stop
+    // at the end of a pass though, so it takes up to sweeps-1 more
+    // iterations than the untiled one, and it reports those. The field
+    // is iterated in place in double precision, without a pool, and the
+    // other methods ignore the mode. 0 or 1 turns it off.
+    //
+    public void setTiled(int sweeps) {
+        if(sweeps < 0)
+            throw new IllegalArgumentException("The sweeps per pass must not be negative");
+        this.tiled = sweeps;
+    }
+
+    static boolean isTileable(String method) {
+        switch(method.toUpperCase()) {
+            case "GS": case "SOR": case "KSOR":
+                return true;
+        }
+        return false;
+    }
+
+    static boolean isColour(String method) {
+        switch(method.toUpperCase()) {
+            case "MSOR": case "MAOR": case "QOR":
+                return true;
+        }
+        return false;
+    }
+
+    double[] doInitMask(int[] idx) {
+        double[] m = new double[Nx*Ny];
+        for(int k = 0; k < idx.length; k++)
+            m[idx[k]] = 1.0;
+        return m;
+    }
+
+    void doPackColour() {
+        H = (Nx+1)/2;
+        if(Rc == null) {
+            Rc = new double[H*Ny];
+            Rn = new double[H*Ny];
+            Bc = new double[H*Ny];
+            MR = new double[H*Ny];
+            MB = new double[H*Ny];
+            for(int k = 0; k < red.length; k++)
+                MR[(red[k]%Nx >> 1) + (red[k]/Nx)*H] = 1.0;
+            for(int k = 0; k < black.length; k++)
+                MB[(black[k]%Nx >> 1) + (black[k]/Nx)*H] = 1.0;
+        }
+        for(int y = 0; y < Ny; y++)
+        for(int x = 0; x < Nx; x++) {
+            if(((x+y) & 1) == 0)
+                Rc[(x>>1)+y*H] = Rn[(x>>1)+y*H] = U[x+y*Nx];
+            else
+                Bc[(x>>1)+y*H] = U[x+y*Nx];
+        }
+    }
+
+    void doUnpackColour() {
+        for(int y = 0; y < Ny; y++)
+        for(int x = 0; x < Nx; x++)
+            U[x+y*Nx] = V[x+y*Nx] = (((x+y) & 1) == 0) ? Rc[(x>>1)+y*H] : Bc[(x>>1)+y*H];
+        stale = false;
+    }
+
+    void doJacobiV() {
+        if(M == null) M = doInitMask(free);
+
+        Residual acc = this.acc;
+        double v;
+        int i, i1;
+        for(int y = 1; y < Ny-1; y++) {
+            i1 = y*Nx + Nx-1;
+            if(acc == null) {
+                for(i = y*Nx+1; i < i1; i++)
+                    V[i] = M[i]*(0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx])) + (1.0-M[i])*U[i];
+            }
+            else {
+                for(i = y*Nx+1; i < i1; i++) {
+                    v = M[i]*(0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx])) + (1.0-M[i])*U[i];
+                    acc.add(U[i], v);
+                    V[i] = v;
+                }
+            }
+        }
+    }
+
+    //
+    // The first and the last packed node of a colour on row y, i.e. the
+    // nodes with 1 <= x <= Nx-2 and (x+y) % 2 == c.
+    //
+    int firstK(int y, int c) {
+        return (((y + c) & 1) == 0) ? 1 : 0;
+    }
+
+    int lastK(int y, int c) {
+        int x = Nx-2;
+        if(((x + y + c) & 1) == 1) --x;
+        return x >> 1;
+    }
+
+    void doRedV(double w, int y0, int y1, Residual acc) {
+        double v;
+        int p, p1, l;
+        for(int y = y0; y < y1; y++) {
+            l = (y & 1) - 1;
+            p = firstK(y, 0) + y*H;
+            p1 = lastK(y, 0) + y*H;
+            if(acc == null) {
+                for(; p <= p1; p++)
+                    Rn[p] = MR[p]*(w*0.25 * (Bc[p+l] + Bc[p+l+1] + Bc[p-H] + Bc[p+H]) + (1-w)*Rc[p]) + (1.0-MR[p])*Rc[p];
+            }
+            else {
+                for(; p <= p1; p++) {
+                    v = MR[p]*(w*0.25 * (Bc[p+l] + Bc[p+l+1] + Bc[p-H] + Bc[p+H]) + (1-w)*Rc[p]) + (1.0-MR[p])*Rc[p];
+                    acc.add(Rc[p], v);
+                    Rn[p] = v;
+                }
+            }
+        }
+    }
+
+    void doMSORBlackV(double ww, int y0, int y1, Residual acc) {
+        double v;
+        int p, p1, l;
+        for(int y = y0; y < y1; y++) {
+            l = -(y & 1);
+            p = firstK(y, 1) + y*H;
+            p1 = lastK(y, 1) + y*H;
+            if(acc == null) {
+                for(; p <= p1; p++)
+                    Bc[p] = MB[p]*(ww*0.25 * (Rn[p+l] + Rn[p+l+1] + Rn[p-H] + Rn[p+H]) + (1-ww)*Bc[p]) + (1.0-MB[p])*Bc[p];
+            }
+            else {
+                for(; p <= p1; p++) {
+                    v = MB[p]*(ww*0.25 * (Rn[p+l] + Rn[p+l+1] + Rn[p-H] + Rn[p+H]) + (1-ww)*Bc[p]) + (1.0-MB[p])*Bc[p];
+                    acc.add(Bc[p], v);
+                    Bc[p] = v;
+                }
+            }
+        }
+    }
+
+    void doMAORBlackV(double w, double r, int y0, int y1, Residual acc) {
+        double v;
+        int p, p1, l;
+        for(int y = y0; y < y1; y++) {
+            l = -(y & 1);
+            p = firstK(y, 1) + y*H;
+            p1 = lastK(y, 1) + y*H;
+            if(acc == null) {
+                for(; p <= p1; p++)
+                    Bc[p] = MB[p]*( w*0.25 * (Rc[p+l] + Rc[p+l+1] + Rc[p-H] + Rc[p+H]) + (1-w)*Bc[p] +
+                                    r*0.25 * (Rn[p+l] - Rc[p+l] + Rn[p-H] - Rc[p-H] +
+                                              Rn[p+l+1] - Rc[p+l+1] + Rn[p+H] - Rc[p+H])) + (1.0-MB[p])*Bc[p];
+            }
+            else {
+                for(; p <= p1; p++) {
+                    v = MB[p]*( w*0.25 * (Rc[p+l] + Rc[p+l+1] + Rc[p-H] + Rc[p+H]) + (1-w)*Bc[p] +
+                                r*0.25 * (Rn[p+l] - Rc[p+l] + Rn[p-H] - Rc[p-H] +
+                                          Rn[p+l+1] - Rc[p+l+1] + Rn[p+H] - Rc[p+H])) + (1.0-MB[p])*Bc[p];
+                    acc.add(Bc[p], v);
+                    Bc[p] = v;
+                }
+            }
+        }
+    }
+
+    void doQORBlackV(double w, double r, double s, double t, double u, int y0, int y1, Residual acc) {
+        double v;
+        int p, p1, l;
+        for(int y = y0; y < y1; y++) {
+            l = -(y & 1);
+            p = firstK(y, 1) + y*H;
+            p1 = lastK(y, 1) + y*H;
+            if(acc == null) {
+                for(; p <= p1; p++)
+                    Bc[p] = MB[p]*(w*0.25 * (Rc[p+l] + Rc[p+l+1] + Rc[p-H] + Rc[p+H]) + (1-w)*Bc[p] +
+                                   r*0.25 * (Rn[p+l  ] - Rc[p+l  ])+
+                                   s*0.25 * (Rn[p+l+1] - Rc[p+l+1])+
+                                   t*0.25 * (Rn[p-H  ] - Rc[p-H  ])+
+                                   u*0.25 * (Rn[p+H  ] - Rc[p+H  ])) + (1.0-MB[p])*Bc[p];
+            }
+            else {
+                for(; p <= p1; p++) {
+                    v = MB[p]*(w*0.25 * (Rc[p+l] + Rc[p+l+1] + Rc[p-H] + Rc[p+H]) + (1-w)*Bc[p] +
+                               r*0.25 * (Rn[p+l  ] - Rc[p+l  ])+
+                               s*0.25 * (Rn[p+l+1] - Rc[p+l+1])+
+                               t*0.25 * (Rn[p-H  ] - Rc[p-H  ])+
+                               u*0.25 * (Rn[p+H  ] - Rc[p+H  ])) + (1.0-MB[p])*Bc[p];
+                    acc.add(Bc[p], v);
+                    Bc[p] = v;
+                }
+            }
+        }
+    }
+
+    void doSwapRed() {
+        double[] t = Rc; Rc = Rn; Rn = t;
+    }
+
+    void doMSORV(double w, double ww) {
+        forEachBand(Ny-2, (lo, hi, acc) -> doRedV(w, lo+1, hi+1, acc));
+        forEachBand(Ny-2, (lo, hi, acc) -> doMSORBlackV(ww, lo+1, hi+1, acc));
+        doSwapRed();
+    }
+
+    void doMAORV(double w, double ww, double r) {
+        forEachBand(Ny-2, (lo, hi, acc) -> doRedV(ww, lo+1, hi+1, acc));
+        forEachBand(Ny-2, (lo, hi, acc) -> doMAORBlackV(w, r, lo+1, hi+1, acc));
+        doSwapRed();
+    }
+
+    void doQORV(double w, double r, double s, double t, double u) {
+        forEachBand(Ny-2, (lo, hi, acc) -> doRedV(w, lo+1, hi+1, acc));
+        forEachBand(Ny-2, (lo, hi, acc) -> doQORBlackV(w, r, s, t, u, lo+1, hi+1, acc));
+        doSwapRed();
+    }
+
+    //
+    // The fills read U, which is equal to V on entry. The QUARTER-SWEEP
+    // fill writes the WHITE Square to V and then the WHITE Dot to U, and
+    // swaps them, so that no loop reads what it writes.
+    //
+    void doFillHSV() {
+        if(MBlack == null) MBlack = doInitMask(black);
+        double[] m = MBlack;
+        int i, i1;
+        for(int y = 1; y < Ny-1; y++) {
+            i1 = y*Nx + Nx-1;
+            for(i = y*Nx+1; i < i1; i++)
+                V[i] = m[i]*(0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx])) + (1.0-m[i])*U[i];
+        }
+    }
+
+    void doFillQSV() {
+        if(MOdd == null) MOdd = doInitMask(odd);
+        if(MBlack == null) MBlack = doInitMask(black);
+        double[] m = MOdd;
+        double[] t;
+        int i, i1;
+
+        // Compute WHITE Square, i.e. x and y are ODD
+        for(int y = 1; y < Ny-1; y++) {
+            i1 = y*Nx + Nx-1;
+            for(i = y*Nx+1; i < i1; i++)
+                V[i] = m[i]*(0.25 * (U[i-1-Nx] + U[i+1-Nx] + U[i-1+Nx] + U[i+1+Nx])) + (1.0-m[i])*U[i];
+        }
+
+        // Compute WHITE Dot, i.e. x ODD and y EVEN or otherwise
+        m = MBlack;
+        for(int y = 1; y < Ny-1; y++) {
+            i1 = y*Nx + Nx-1;
+            for(i = y*Nx+1; i < i1; i++)
+                U[i] = m[i]*(0.25 * (V[i-1] + V[i+1] + V[i-Nx] + V[i+Nx])) + (1.0-m[i])*V[i];
+        }
+        t = U; U = V; V = t;
+    }
+
+    //
+    // The MULTIGRID method. Level 0 is the grid itself and level l+1 holds
+    // every other node of level l, i.e. level 1 holds the QUARTER-SWEEP
+    // nodes. The coarse levels solve for the correction, so a coarse node
+    // is free only if its fine node is free and the walls are 0.
+    //
+    // The correction is brought up by the bilinear interpolation P over
+    // the free nodes, the residual is brought down by its transpose, i.e.
+    // the full weighting times 4, and each coarse operator is the Galerkin
+    // product P'AP. So a coarse level sees the walls of the fine one,
+    // however thin, and the coarse correction can never make the error
+    // worse. The coarse operators are 9-point stencils s[d], with
+    // d = (dy+1)*3 + (dx+1), and are smoothed in the 4 colours of
+    // (x%2, y%2). Level 0 is smoothed by red-black Gauss-Seidel, i.e. the
+    // MSOR kernel with w = 1.
+    //
+    // One iteration of MG is one V-cycle. FMG first solves for the
+    // correction from the coarsest level up, with one V-cycle on each
+    // level in between.
+    //
+    static final int MG_PRE = 2;
+    static final int MG_POST = 2;
+    static final int MG_COARSEST = 50;
+    static final int MG_MIN = 5;
+
+    static class Level {
+        int Nx, Ny;
+        boolean[] F;
+        double[][] s;
+        int[][] colours;
+        double[] u, f, r;
+    }
+
+    Level[] levels;
+
+    static boolean isMultigrid(String method) {
+        return method.equalsIgnoreCase("MG") || method.equalsIgnoreCase("FMG");
+    }
+
+    void doInitLevels() {
+        ArrayList<Level> list = new ArrayList<Level>();
+        Level l = new Level();
+        l.Nx = Nx;
+        l.Ny = Ny;
+        l.F = new boolean[Nx*Ny];
+        for(int k = 0; k < free.length; k++)
+            l.F[free[k]] = true;
+        l.colours = new int[][] {red, black};
+        l.f = new double[Nx*Ny];
+        l.r = new double[Nx*Ny];
+        list.add(l);
+
+        while((l.Nx > MG_MIN) && (l.Ny > MG_MIN)) {
+            l = doCoarsen(l);
+            if(l.colours[0].length + l.colours[1].length + l.colours[2].length + l.colours[3].length == 0) break;
+            list.add(l);
+        }
+        levels = list.toArray(new Level[0]);
+    }
+
+    // The stencil of fl at node i, or the 5-point Laplacian on level 0
+    static double stencil(Level fl, int i, int d, int off) {
+        if(fl.s != null) return fl.s[d][i];
+        if(d == 4) return 4.0;
+        if((d & 1) == 1) return fl.F[i+off] ? -1.0 : 0.0;
+        return 0.0;
+    }
+
+    static double weight(int d) {
+        return (d == 0) ? 1.0 : ((d == 1) || (d == -1)) ? 0.5 : 0.0;
+    }
+
+    Level doCoarsen(Level fl) {
+        Level c = new Level();
+        c.Nx = (fl.Nx+1)/2;
+        c.Ny = (fl.Ny+1)/2;
+        c.F = new boolean[c.Nx*c.Ny];
+        c.s = new double[9][c.Nx*c.Ny];
+
+        int n = fl.Nx, N = c.Nx;
+        int[] count = new int[4];
+        for(int y = 1; y < c.Ny-1; y++)
+        for(int x = 1; x < c.Nx-1; x++)
+            if(fl.F[2*x + 2*y*n]) {
+                c.F[x+y*N] = true;
+                ++count[(x & 1) + 2*(y & 1)];
+            }
+
+        c.colours = new int[4][];
+        for(int k = 0; k < 4; k++) c.colours[k] = new int[count[k]];
+        Arrays.fill(count, 0);
+        for(int y = 1; y < c.Ny-1; y++)
+        for(int x = 1; x < c.Nx-1; x++)
+            if(c.F[x+y*N]) {
+                int k = (x & 1) + 2*(y & 1);
+                c.colours[k][count[k]++] = x+y*N;
+            }
+
+        // The Galerkin product, i.e. s[J][K] = sum of P[i][J] A[i][j] P[j][K]
+        int i, j, J, jx, jy;
+        double p, a;
+        for(int Y = 1; Y < c.Ny-1; Y++)
+        for(int X = 1; X < c.Nx-1; X++) {
+            J = X + Y*N;
+            if(!c.F[J]) continue;
+            for(int b = -1; b <= 1; b++)
+            for(int e = -1; e <= 1; e++) {
+                i = 2*X+e + (2*Y+b)*n;
+                if(!fl.F[i]) continue;
+                p = weight(e) * weight(b);
+                for(int d = 0; d < 9; d++) {
+                    a = stencil(fl, i, d, d%3-1 + (d/3-1)*n);
+                    if(a == 0.0) continue;
+                    jx = 2*X+e + d%3-1;
+                    jy = 2*Y+b + d/3-1;
+                    j = jx + jy*n;
+                    if(!fl.F[j]) continue;
+                    for(int KY = jy >> 1; KY <= (jy+1) >> 1; KY++)
+                    for(int KX = jx >> 1; KX <= (jx+1) >> 1; KX++) {
+                        if(!c.F[KX + KY*N]) continue;
+                        c.s[(KY-Y+1)*3 + (KX-X+1)][J] += p * a * weight(jx-2*KX) * weight(jy-2*KY);
+                    }
+                }
+            }
+        }
+
+        c.u = new double[c.Nx*c.Ny];
+        c.f = new double[c.Nx*c.Ny];
+        c.r = new double[c.Nx*c.Ny];
+        return c;
+    }
+
+    void doSmooth(Level l, int sweeps) {
+        for(int n = 0; n < sweeps; n++)
+            for(int[] idx : l.colours)
+                forEachBand(idx, (lo, hi, acc) -> doSmoothColour(l, idx, lo, hi));
+    }
+
+    void doSmoothColour(Level l, int[] idx, int lo, int hi) {
+        double[] u = l.u, f = l.f;
+        int N = l.Nx;
+        int i;
+        if(l.s == null) {
+            for(int k = lo; k < hi; k++) {
+                i = idx[k];
+                u[i] = 0.25 * (u[i-1] + u[i+1] + u[i-N] + u[i+N]);
+            }
+            return;
+        }
+
+        double[][] s = l.s;
+        for(int k = lo; k < hi; k++) {
+            i = idx[k];
+            u[i] = (f[i] - (s[0][i]*u[i-1-N] + s[1][i]*u[i-N] + s[2][i]*u[i+1-N] +
+                            s[3][i]*u[i-1]                      + s[5][i]*u[i+1] +
+                            s[6][i]*u[i-1+N] + s[7][i]*u[i+N] + s[8][i]*u[i+1+N])) / s[4][i];
+        }
+    }
+
+    void doResidual(Level l) {
+        double[] u = l.u, f = l.f, r = l.r;
+        double[][] s = l.s;
+        int N = l.Nx;
+        int i;
+        for(int[] idx : l.colours)
+        for(int k = 0; k < idx.length; k++) {
+            i = idx[k];
+            if(s == null)
+                r[i] = f[i] - (4*u[i] - (u[i-1] + u[i+1] + u[i-N] + u[i+N]));
+            else
+                r[i] = f[i] - (s[0][i]*u[i-1-N] + s[1][i]*u[i-N] + s[2][i]*u[i+1-N] +
+                               s[3][i]*u[i-1]   + s[4][i]*u[i]   + s[5][i]*u[i+1] +
+                               s[6][i]*u[i-1+N] + s[7][i]*u[i+N] + s[8][i]*u[i+1+N]);
+        }
+    }
+
+    // The transpose of the interpolation, i.e. the full weighting times 4
+    void doRestrict(Level fl, Level c) {
+        double[] r = fl.r;
+        int n = fl.Nx;
+        int i;
+        Arrays.fill(c.u, 0.0);
+        for(int[] idx : c.colours)
+        for(int k = 0; k < idx.length; k++) {
+            i = 2*(idx[k] % c.Nx) + 2*(idx[k] / c.Nx)*n;
+            c.f[idx[k]] = (4*r[i] + 2*(r[i-1] + r[i+1] + r[i-n] + r[i+n]) +
+                           r[i-1-n] + r[i+1-n] + r[i-1+n] + r[i+1+n]) * 0.25;
+        }
+    }
+
+    // The bilinear interpolation of the coarse correction, added to the
+    // free nodes of fl. The coarse walls are 0.
+    void doProlong(Level c, Level fl) {
+        double[] u = c.u;
+        int N = c.Nx, n = fl.Nx;
+        int i, x, y, I;
+        for(int[] idx : fl.colours)
+        for(int k = 0; k < idx.length; k++) {
+            i = idx[k];
+            x = i % n;
+            y = i / n;
+            I = (x >> 1) + (y >> 1)*N;
+            if((x & 1) == 0)
+                fl.u[i] += ((y & 1) == 0) ? u[I] : 0.5 * (u[I] + u[I+N]);
+            else
+                fl.u[i] += ((y & 1) == 0) ? 0.5 * (u[I] + u[I+1]) : 0.25 * (u[I] + u[I+1] + u[I+N] + u[I+1+N]);
+        }
+    }
+
+    void doVCycle(int k) {
+        Level l = levels[k];
+        if(k == levels.length-1) {
+            doSmooth(l, MG_COARSEST);
+            return;
+        }
+
+        Level c = levels[k+1];
+        doSmooth(l, MG_PRE);
+        doResidual(l);
+        doRestrict(l, c);
+        doVCycle(k+1);
+        doProlong(c, l);
+        doSmooth(l, MG_POST);
+    }
+
+    //
+    // One V-cycle, i.e. V from U as the other kernels.
+    //
+    public void doMG() {
+        if(levels == null) doInitLevels();
+
+        System.arraycopy(U, 0, V, 0, U.length);
+        levels[0].u = V;
+        doVCycle(0);
+
+        Residual acc = this.acc;
+        if(acc == null) return;
+        for(int k = 0; k < free.length; k++)
+            acc.add(U[free[k]], V[free[k]]);
+    }
+
+    //
+    // The full multigrid start, i.e. restrict the residual of U to every
+    // level, solve for the correction on the coarsest, then interpolate
+    // it up with one V-cycle on each level in between. It adds the
+    // correction to both U and V.
+    //
+    public void doFMG() {
+        sync();
+        unpack();
+        if(levels == null) doInitLevels();
+
+        levels[0].u = V;
+        doResidual(levels[0]);
+        for(int k = 1; k < levels.length; k++) {
+            doRestrict(levels[k-1], levels[k]);
+            System.arraycopy(levels[k].f, 0, levels[k].r, 0, levels[k].f.length);
+        }
+
+        doSmooth(levels[levels.length-1], MG_COARSEST);
+        for(int k = levels.length-2; k >= 0; k--) {
+            if(k > 0) Arrays.fill(levels[k].u, 0.0);
+            doProlong(levels[k+1], levels[k]);
+            if(k > 0) doVCycle(k);
+        }
+        System.arraycopy(V, 0, U, 0, V.length);
+    }
+
+    //
+    // The automatic parameters. The best w of SOR is
+    //     w = 2 / (1 + sqrt(1 - p^2))
+    // where p is the spectral radius of the Jacobi iteration. p depends on
+    // the walls, so it is estimated for the actual map, once per sweep,
+    // see doRadius(). The other methods are set to the same iteration as
+    // SOR with that w, i.e.
+    //     AOR, TOR, MSOR, MAOR, QOR   every parameter w
+    //     KSOR, KAOR                  w/(1-w), as KSOR(w) is SOR(w/(1+w))
+    // and the HALF-SWEEP and QUARTER-SWEEP methods use the p of their own
+    // stencil. Returns the 6 parameters in the order of solve().
+    //
+    public double[] tune(String method) {
+        int sweep = sweepOf(method);
+        if(radius == null) radius = new double[QUARTER_SWEEP+1];
+        if(radius[sweep] == 0) {
+            if(sweep == HALF_SWEEP)
+                radius[sweep] = doRadius(red, new int[] {-1-Nx, 1-Nx, -1+Nx, 1+Nx});
+            else if(sweep == QUARTER_SWEEP)
+                radius[sweep] = doRadius(qs, new int[] {-2, 2, -2*Nx, 2*Nx});
+            else
+                radius[sweep] = doRadius(free, new int[] {-1, 1, -Nx, Nx});
+        }
+
+        double p = radius[sweep];
+        return paramsOf(method, 2.0 / (1.0 + Math.sqrt(1.0 - p*p)));
+    }
+
+    // The parameters of method that iterate as SOR(w), and back
+    static boolean isKaudd(String method) {
+        switch(method.toUpperCase()) {
+            case "KSOR": case "HSKSOR": case "QSKSOR": case "KAOR":
+                return true;
+        }
+        return false;
+    }
+
+    static double[] paramsOf(String method, double w) {
+        if(isKaudd(method)) w = w / (1.0 - w);
+        return new double[] {w, w, w, w, w, w};
+    }
+
+    static double omegaOf(String method, double[] p) {
+        return isKaudd(method) ? p[0] / (1.0 + p[0]) : p[0];
+    }
+
+    //
+    // The spectral radius of the Jacobi iteration over the nodes idx, i.e.
+    // of 0.25 times the sum of the nybors off that are in idx, the rest
+    // held fixed. The matrix is symmetric, so the Lanczos iteration finds
+    // its largest eigenvalue in far fewer steps than the power iteration.
+    // It stops when 1-p settles to within RADIUS_TOLERANCE. The estimate
+    // is from below, so w errs on the low side.
+    //
+    static final int RADIUS_CHECK = 10;
+    static final double RADIUS_TOLERANCE = 1.0e-2;
+
+    double doRadius(int[] idx, int[] off) {
+        int n = idx.length;
+        if(n == 0) return 0.0;
+
+        // The vectors over the whole grid, 0 off the nodes
+        double[] q = new double[Nx*Ny];
+        double[] qPrev = new double[Nx*Ny];
+        double[] z = new double[Nx*Ny];
+        double[] alpha = new double[n];
+        double[] beta = new double[n];
+        for(int k = 0; k < n; k++) q[idx[k]] = 1.0 / Math.sqrt(n);
+
+        double p = 0.0, last = -1.0, a, b = 0.0, t;
+        int i, steps = Math.min(n, 4*Math.max(Nx, Ny));
+        for(int m = 0; m < steps; m++) {
+            a = 0.0;
+            for(int k = 0; k < n; k++) {
+                i = idx[k];
+                t = 0.0;
+                for(int d = 0; d < off.length; d++) t += q[i+off[d]];
+                z[i] = 0.25*t - b*qPrev[i];
+                a += z[i]*q[i];
+            }
+            b = 0.0;
+            for(int k = 0; k < n; k++) {
+                i = idx[k];
+                z[i] -= a*q[i];
+                b += z[i]*z[i];
+            }
+            b = Math.sqrt(b);
+            alpha[m] = a;
+            beta[m] = b;
+
+            if(((m+1) % RADIUS_CHECK == 0) || (m+1 == steps) || (b < 1.0e-12)) {
+                p = doLargest(alpha, beta, m+1);
+                if((b < 1.0e-12) || (Math.abs(p - last) <= RADIUS_TOLERANCE*(1.0 - p))) break;
+                last = p;
             }
 
-        // Compute the BLACK nodes
-        for(int y = 2; y < Ny-2; y++)
-        for(int x = 2; x < Nx-2; x++)
-            if(RB[x+y*Nx] == 2)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] =  w*0.25 * (U[x-2+y*Nx] + U[x+2+y*Nx] + U[x+(y-2)*Nx] + U[x+(y+2)*Nx]) + (1-w)*U[x+y*Nx] +
-                             r*0.25 * (V[x-2+y*Nx] - U[x-2+y*Nx] + V[x+(y-2)*Nx] - U[x+(y-2)*Nx] +
-                                       V[x+2+y*Nx] - U[x+2+y*Nx] + V[x+(y+2)*Nx] - U[x+(y+2)*Nx]);
+            for(int k = 0; k < n; k++) {
+                i = idx[k];
+                qPrev[i] = q[i];
+                q[i] = z[i] / b;
             }
+        }
+        return Math.min(p, 1.0);
+    }
+
+    //
+    // The largest eigenvalue of the m by m tridiagonal matrix of the
+    // diagonal alpha and the off-diagonal beta, by bisection on the Sturm
+    // count. It lies in [-1, 1] as no row of the Jacobi iteration sums to
+    // more than 1.
+    //
+    static double doLargest(double[] alpha, double[] beta, int m) {
+        double lo = -1.0, hi = 1.0, x, d;
+        int below;
+        for(int it = 0; it < 60; it++) {
+            x = 0.5 * (lo + hi);
+
+            // The number of eigenvalues below x
+            below = 0;
+            d = 1.0;
+            for(int k = 0; k < m; k++) {
+                d = alpha[k] - x - ((k > 0) ? beta[k-1]*beta[k-1] / d : 0.0);
+                if(d == 0.0) d = -1.0e-300;
+                if(d < 0) ++below;
+            }
+            if(below == m) hi = x; else lo = x;
+        }
+        return 0.5 * (lo + hi);
+    }
+
+    //
+    // The method dispatcher, i.e. the same method names as in the Planner.
+    //
+    static final int FULL_SWEEP = 1;
+    static final int HALF_SWEEP = 2;
+    static final int QUARTER_SWEEP = 4;
+    static final int COLOUR = 8;
+
+    public static int sweepOf(String method) {
+        switch(method.toUpperCase()) {
+            case "JACOBI": case "GS": case "SOR": case "AOR": case "TOR": case "QOR":
+            case "KSOR": case "KAOR": case "MSOR": case "MAOR":
+            case "MG": case "FMG":
+                return FULL_SWEEP;
+            case "HSSOR": case "HSKSOR": case "HSMSOR":
+                return HALF_SWEEP;
+            case "QSSOR": case "QSKSOR": case "QSMSOR": case "QSMAOR":
+                return QUARTER_SWEEP;
+        }
+        throw new IllegalArgumentException("Iteration Method Not Found: " + method);
     }
 
+    public void iterate(String method, double w, double ww, double r, double s, double t, double u) {
+        hops = null;
+        if(vector && isColour(method)) pack(COLOUR);
+        else if(compact) pack(sweepOf(method));
+        else if(packed != 0) unpack();
+        switch(method.toUpperCase()) {
+            case "JACOBI": doJacobi(); break;
+            case "GS":     doGS(); break;
+            case "SOR":    doSOR(w); break;
+            case "AOR":    doAOR(w, r); break;
+            case "TOR":    doTOR(w, r, s); break;
+            case "QOR":    doQOR(w, r, s, t, u); break;
+            case "KSOR":   doKSOR(w); break;
+            case "KAOR":   doKAOR(w, r); break;
+            case "MSOR":   doMSOR(w, ww); break;
+            case "MAOR":   doMAOR(w, ww, r); break;
+            case "HSSOR":  doHSSOR(w); break;
+            case "HSKSOR": doHSKSOR(w); break;
+            case "HSMSOR": doHSMSOR(w, ww); break;
+            case "QSSOR":  doQSSOR(w); break;
+            case "QSKSOR": doQSKSOR(w); break;
+            case "QSMSOR": doQSMSOR(w, ww); break;
+            case "QSMAOR": doQSMAOR(w, ww, r); break;
+            case "MG":     doMG(); break;
+            case "FMG":    doMG(); break;
+            default:
+                throw new IllegalArgumentException("Iteration Method Not Found: " + method);
+        }
+    }
 
+    //
+    // Iterate the given method until it converges, then fill in the
+    // skipped nodes of the HALF-SWEEP and QUARTER-SWEEP methods.
+    // Returns the number of iterations. The iteration stops early if
+    // the Convergence cap is reached or the method diverges, in which
+    // case converged is false.
+    //
+    public int solve(String method, double w, double ww, double r, double s, double t, double u) {
+        return solve(method, new double[] {w, ww, r, s, t, u}, false);
+    }
 
     //
-    // The novelty: Quad-Parameter Overrelaxation (also known as Red-Black QOR)
+    // The same with the parameters of tune(). Near w = 2 the round-off of
+    // the update alone can keep the error above a tight tolerance, so
+    // when the error has not improved for STALL checks, w is moved half
+    // way back to 1 and the iteration carries on.
     //
-    public void doQOR(double w, double r, double s, double t, double u) {
-        int x,y;
+    public int solve(String method) {
+        return solve(method, tune(method), true);
+    }
 
-        // The RED nodes
-        for(y = 1; y < Ny-1; y++)
-        for(x = 1; x < Nx-1; x++)
-            if((x+y) % 2 == 0)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-w)*U[x+y*Nx];
+    //
+    // The solve() with the Stats, the listener and the JFR events around
+    // it; doSolve() is the iteration.
+    //
+    int solve(String method, double[] p, boolean adapt) {
+        Stats st = new Stats(method.toUpperCase(), nodesOf(method));
+        SolveEvent e = new SolveEvent();
+        e.begin();
+        long t0 = System.nanoTime();
+        int iteration;
+        live = st;
+        try {
+            iteration = doSolve(method, p, adapt);
+        }
+        finally {
+            live = null;
+        }
+        st.elapsedNanos = System.nanoTime() - t0;
+        st.converged = converged;
+        st.residual = residual;
+        st.bytes = footprint();
+        stats = st;
+
+        e.end();
+        if(e.shouldCommit()) {
+            e.method = st.method;
+            e.width = Nx;
+            e.height = Ny;
+            e.nodes = st.nodes;
+            e.iterations = iteration;
+            e.converged = st.converged;
+            e.residual = st.residual;
+            e.updates = st.updates;
+            e.updatesPerSecond = st.updatesPerSecond();
+            e.kernelNanos = st.kernelNanos;
+            e.checkNanos = st.checkNanos;
+            e.copyNanos = st.copyNanos;
+            e.bytes = st.bytes;
+            e.commit();
+        }
+        if(listener != null) listener.onSolve(this, st);
+        return iteration;
+    }
+
+    int doSolve(String method, double[] p, boolean adapt) {
+        if((tiled > 1) && isTileable(method)) return doSolveTiled(method, p, adapt);
+
+        int sweep = sweepOf(method);
+        int iteration = 0;
+        int since = 0;
+        double best = Double.POSITIVE_INFINITY;
+        boolean check;
+
+        converged = false;
+        residual = Double.NaN;
+        if(method.equalsIgnoreCase("FMG")) doFMG();
+        while(true) {
+            ++iteration;
+            check = convergence.isCheck(iteration);
+            if(step(method, p[0], p[1], p[2], p[3], p[4], p[5], check)) {
+                converged = true;
+                break;
             }
 
-        // The BLACK nodes
-        for(y = 1; y < Ny-1; y++)
-        for(x = 1; x < Nx-1; x++)
-            if((x+y) % 2 == 1)
-            if(W[x+y*Nx] != WALL_VALUE)
-            {
-                V[x+y*Nx] = w*0.25 * (U[x-1+y*Nx] + U[x+1+y*Nx] + U[x+(y-1)*Nx] + U[x+(y+1)*Nx]) + (1-w)*U[x+y*Nx] +
-                            r*0.25 * (V[x-1+y  *Nx] - U[x-1+y  *Nx])+
-                            s*0.25 * (V[x+1+y  *Nx] - U[x+1+y  *Nx])+
-                            t*0.25 * (V[x+(y-1)*Nx] - U[x+(y-1)*Nx])+
-                            u*0.25 * (V[x+(y+1)*Nx] - U[x+(y+1)*Nx]);
+            // Opps, it diverges
+            if(check && (Double.isNaN(residual) || Double.isInfinite(residual))) break;
+
+            // Opps, it stalls
+            if(adapt && check) {
+                if(residual < best) {
+                    best = residual;
+                    since = 0;
+                }
+                else if(++since >= STALL) {
+                    p = paramsOf(method, 1.0 + 0.5*(omegaOf(method, p) - 1.0));
+                    best = Double.POSITIVE_INFINITY;
+                    since = 0;
+                }
+            }
+
+            if(convergence.isExhausted(iteration)) break;
+            if(isStopped()) break;
+        }
+        long t0 = System.nanoTime();
+        sync();
+
+        if(sweep == HALF_SWEEP) {
+            doFillHS();
+            updateMatrix();
+        }
+        else if(sweep == QUARTER_SWEEP) {
+            doFillQS();
+            updateMatrix();
+        }
+        copied(t0);
+        record(method, p[0], p[1], p[2], p[3], p[4], p[5], iteration);
+        return iteration;
+    }
+
+    //
+    // The solve() of the tiled mode, see setTiled(). It stops at the end
+    // of the first pass in which a sweep has converged, and the residual
+    // is that of the sweep that converged.
+    //
+    int doSolveTiled(String method, double[] p, boolean adapt) {
+        int m = method.equalsIgnoreCase("GS") ? 0 : method.equalsIgnoreCase("SOR") ? 1 : 2;
+        int iteration = 0;
+        int since = 0;
+        double best = Double.POSITIVE_INFINITY;
+        Residual[] res = new Residual[tiled];
+        boolean done = false;
+
+        sync();
+        unpack();
+        hops = null;
+        if(freeRows == null) freeRows = rowsOf(free);
+
+        converged = false;
+        residual = Double.NaN;
+        while(!done) {
+            int n = tiled;
+            if(convergence.maxIterations > 0) n = Math.min(n, convergence.maxIterations - iteration);
+            for(int k = 0; k < n; k++)
+                res[k] = convergence.isCheck(iteration+1+k) ? new Residual(convergence.relative) : null;
+
+            long t0 = System.nanoTime();
+            doWavefront(m, p[0], n, res);
+            stale = true;
+            long t1 = System.nanoTime();
+
+            for(int k = 0; k < n; k++) {
+                ++iteration;
+                if(live != null) {
+                    live.iterations++;
+                    live.updates += free.length;
+                }
+                if((res[k] == null) || converged) continue;
+
+                residual = convergence.error(res[k]);
+                if(live != null) observe(live);
+                if(convergence.isConverged(residual)) {
+                    converged = true;
+                    done = true;
+                }
+
+                // Opps, it diverges
+                else if(Double.isNaN(residual) || Double.isInfinite(residual)) done = true;
+
+                // Opps, it stalls, see solve(method)
+                else if(adapt) {
+                    if(residual < best) {
+                        best = residual;
+                        since = 0;
+                    }
+                    else if(++since >= STALL) {
+                        p = paramsOf(method, 1.0 + 0.5*(omegaOf(method, p) - 1.0));
+                        best = Double.POSITIVE_INFINITY;
+                        since = 0;
+                    }
+                }
             }
+            if(live != null) live.kernelNanos += t1 - t0;
+
+            if(convergence.isExhausted(iteration)) break;
+            if(isStopped()) break;
+        }
+        long t0 = System.nanoTime();
+        sync();
+        copied(t0);
+        record(method, p[0], p[1], p[2], p[3], p[4], p[5], iteration);
+        return iteration;
     }
 
-    public boolean checkConverge() {
-        double err = 0.0;
-        int k = 0;
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if(U[x+y*Nx] != V[x+y*Nx])
-            if(W[x+y*Nx] != WALL_VALUE) {
-                err += Math.abs(1-U[x+y*Nx]/V[x+y*Nx]);
-                ++k;
+    //
+    // The n sweeps of one pass, in place on U. At step s sweep k updates
+    // row s-2k, so each sweep reads row y-1 after and row y+1 before it
+    // has updated them, as the untiled sweep does.
+    //
+    void doWavefront(int m, double w, int n, Residual[] res) {
+        int y;
+        for(int s = 1; s <= (Ny-2) + 2*(n-1); s++)
+        for(int k = 0; k < n; k++) {
+            y = s - 2*k;
+            if((y < 1) || (y > Ny-2)) continue;
+            if(m == 0) doRowGS(freeRows[y], freeRows[y+1], res[k]);
+            else if(m == 1) doRowSOR(w, freeRows[y], freeRows[y+1], res[k]);
+            else doRowKSOR(w, freeRows[y], freeRows[y+1], res[k]);
+        }
+    }
+
+    void doRowGS(int k0, int k1, Residual acc) {
+        int i;
+        double u, v;
+        for(int k = k0; k < k1; k++) {
+            i = free[k];
+            u = U[i];
+            v = 0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]);
+            U[i] = v;
+            if(acc != null) acc.add(u, v);
+        }
+    }
+
+    void doRowSOR(double w, int k0, int k1, Residual acc) {
+        int i;
+        double u, v;
+        for(int k = k0; k < k1; k++) {
+            i = free[k];
+            u = U[i];
+            v = w*0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]) + (1-w)*u;
+            U[i] = v;
+            if(acc != null) acc.add(u, v);
+        }
+    }
+
+    void doRowKSOR(double w, int k0, int k1, Residual acc) {
+        int i;
+        double u, v;
+        for(int k = k0; k < k1; k++) {
+            i = free[k];
+            u = U[i];
+            v = (1./(1.+w)) * (w*0.25 * (U[i-1] + U[i+1] + U[i-Nx] + U[i+Nx]) + u);
+            U[i] = v;
+            if(acc != null) acc.add(u, v);
+        }
+    }
+
+    // The start of every row in the list, i.e. row y is rows[y]..rows[y+1]-1
+    int[] rowsOf(int[] idx) {
+        int[] rows = new int[Ny+1];
+        for(int k = 0; k < idx.length; k++)
+            ++rows[idx[k]/Nx + 1];
+        for(int y = 0; y < Ny; y++)
+            rows[y+1] += rows[y];
+        return rows;
+    }
+
+    // The nodes that one sweep of the method updates, on the fine grid
+    int nodesOf(String method) {
+        int sweep = sweepOf(method);
+        if(sweep == HALF_SWEEP) return red.length;
+        if(sweep == QUARTER_SWEEP) return qs.length;
+        return free.length;
+    }
+
+    //
+    // The bytes held by the field, the index lists, the packed and vector
+    // copies, the multigrid levels and the next-hop table.
+    //
+    public long footprint() {
+        long n = 8L * (len(U) + len(V) + len(Uc) + len(Vc) + len(M) +
+                       len(Rc) + len(Rn) + len(Bc) + len(MR) + len(MB));
+        n += 4L * (len(W) + len(O) + len(RB) + len(free) + len(red) + len(black) +
+                   len(odd) + len(even) + len(qs) + len(qsRed) + len(qsBlack) +
+                   len(qsC) + len(qsRedC) + len(qsBlackC) + len(evenC) +
+                   len(redH) + len(oddH) + len(evenH));
+        n += len(A) + len(reachable);
+        if(hops != null) n += hops.capacity();
+        if(levels != null) {
+            for(int k = 0; k < levels.length; k++) {
+                Level l = levels[k];
+                n += len(l.F);
+                n += 8L * (len(l.f) + len(l.r));
+                if(l.u != U && l.u != V) n += 8L * len(l.u);
+                if(l.s != null) for(int j = 0; j < l.s.length; j++) n += 8L * len(l.s[j]);
+                if(k > 0 && l.colours != null) for(int j = 0; j < l.colours.length; j++) n += 4L * len(l.colours[j]);
             }
-        if(k > 0) err /= k;
-        return (err < EPSILON);
+        }
+        return n;
+    }
+
+    static int len(double[] a) { return (a == null) ? 0 : a.length; }
+    static int len(float[] a) { return (a == null) ? 0 : a.length; }
+    static int len(int[] a) { return (a == null) ? 0 : a.length; }
+    static int len(boolean[] a) { return (a == null) ? 0 : a.length; }
+
+    void record(String method, double w, double ww, double r, double s, double t, double u, int iteration) {
+        this.method = method.toUpperCase();
+        this.params = new double[] {w, ww, r, s, t, u};
+        this.iterations = iteration;
+    }
+
+    public boolean checkConverge() {
+        return checkConverge(free);
     }
 
     public boolean checkConvergeHS() {
-        double err = 0.0;
-        int k = 0;
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x+y) % 2 == 0)
-            if(U[x+y*Nx] != V[x+y*Nx])
-            if(W[x+y*Nx] != WALL_VALUE) {
-                err += Math.abs(1-U[x+y*Nx]/V[x+y*Nx]);
-                ++k;
-            }
-        if(k > 0) err /= k;
-        return (err < EPSILON);
+        if(packed == HALF_SWEEP) return checkConverge(Uc, Vc, redH, 1);
+        return checkConverge(red);
     }
 
     public boolean checkConvergeQS() {
-        double err = 0.0;
-        int k = 0;
-        for(int y = 1; y < Ny-1; y++)
-        for(int x = 1; x < Nx-1; x++)
-            if((x%2 == 0) && (y%2 == 0))
-            if(U[x+y*Nx] != V[x+y*Nx])
-            if(W[x+y*Nx] != WALL_VALUE) {
-                err += Math.abs(1-U[x+y*Nx]/V[x+y*Nx]);
-                ++k;
-            }
-        if(k > 0) err /= k;
-        return (err < EPSILON);
+        if(packed == QUARTER_SWEEP) return checkConverge(Uc, Vc, evenC, 0);
+        return checkConverge(even);
+    }
+
+    boolean checkConverge(int[] idx) {
+        return checkConverge(U, V, idx, 0);
+    }
+
+    boolean checkConverge(double[] U, double[] V, int[] idx, int shift) {
+        Residual res = new Residual(convergence.relative);
+        int i;
+        for(int n = 0; n < idx.length; n++) {
+            i = idx[n] >> shift;
+            res.add(U[i], V[i]);
+        }
+        residual = convergence.error(res);
+        return convergence.isConverged(residual);
     }
 
     public void runGDS(int x, int y) {
-        int minx = x, miny = y;
+        int[] cells = findPath(x, y);
 
         path.clear();
+        for(int n = 0; n < cells.length; n++)
+            path.add(new Point(cells[n] % Nx, cells[n] / Nx));
+    }
+
+    //
+    // The path query. It is the GDS of runGDS() without the shared path,
+    // i.e. it only reads V, so many threads may query one converged field
+    // at once as long as none of them iterates it. The path is given as
+    // the cell indices x+y*Nx, the same cells that runGDS() leaves in path.
+    //
+    // The cells are written into buf as far as it goes, and the length of
+    // the whole path is returned, so that a short buf can be retried with
+    // one of that length. No object is allocated per step.
+    //
+    public int findPath(int x, int y, int[] buf) {
+        ByteBuffer hops = this.hops;
+        if(hops != null) return findHops(hops, hop, x+y*Nx, buf);
+
+        settle();
+        double[] V = this.V;
+        int i = x+y*Nx, min = i, n = 0;
+
         while(true) {
-            if(V[(x-1)+y*Nx] < V[minx+miny*Nx]) { minx = x-1; miny = y; }
-            if(V[x+(y-1)*Nx] < V[minx+miny*Nx]) { minx = x; miny = y-1; }
-            if(V[(x+1)+y*Nx] < V[minx+miny*Nx]) { minx = x+1; miny = y; }
-            if(V[x+(y+1)*Nx] < V[minx+miny*Nx]) { minx = x; miny = y+1; }
+            if(V[i-1] < V[min]) min = i-1;
+            if(V[i-Nx] < V[min]) min = i-Nx;
+            if(V[i+1] < V[min]) min = i+1;
+            if(V[i+Nx] < V[min]) min = i+Nx;
 
-            if(V[x-1+(y-1)*Nx] < V[minx+miny*Nx]) { minx = x-1; miny = y-1; }
-            if(V[x+1+(y-1)*Nx] < V[minx+miny*Nx]) { minx = x+1; miny = y-1; }
-            if(V[x-1+(y+1)*Nx] < V[minx+miny*Nx]) { minx = x-1; miny = y+1; }
-            if(V[x+1+(y+1)*Nx] < V[minx+miny*Nx]) { minx = x+1; miny = y+1; }
+            if(V[i-1-Nx] < V[min]) min = i-1-Nx;
+            if(V[i+1-Nx] < V[min]) min = i+1-Nx;
+            if(V[i-1+Nx] < V[min]) min = i-1+Nx;
+            if(V[i+1+Nx] < V[min]) min = i+1+Nx;
 
-            path.add(new Point(minx, miny));
+            if(n < buf.length) buf[n] = min;
+            ++n;
 
             // Opps, we stuck
-            if((minx == x) && (miny == y)) break;
+            if(min == i) break;
 
             // The goal is found
-            if(V[minx+miny*Nx] == GOAL_VALUE) break;
+            if(V[min] == GOAL_VALUE) break;
 
-            x = minx; y = miny;
+            i = min;
+        }
+        return n;
+    }
+
+    public int[] findPath(int x, int y) {
+        int[] buf = new int[PATH_SIZE];
+        int n = findPath(x, y, buf);
+        if(n > buf.length) {
+            buf = new int[n];
+            findPath(x, y, buf);
+        }
+        return Arrays.copyOf(buf, n);
+    }
+
+    //
+    // The next-hop table of the converged field, one byte per node. It
+    // holds the nybor that the GDS steps to, numbered as in hop, or
+    // HOP_STUCK or HOP_GOAL where a path ends. findPath() then follows the
+    // table instead of comparing 8 nybors per step. The table is dropped
+    // when the field changes; it is never rebuilt on its own.
+    //
+    public void buildHops() {
+        settle();
+        byte[] T = new byte[Nx*Ny];
+        Arrays.fill(T, HOP_STUCK);
+        forEachBand(Ny, (lo, hi, acc) -> doBuildHops(T, lo, hi));
+        hops = ByteBuffer.wrap(T);
+    }
+
+    void doBuildHops(byte[] T, int lo, int hi) {
+        int i, min, d;
+        for(int y = Math.max(lo, 1); y < Math.min(hi, Ny-1); y++)
+        for(int x = 1; x < Nx-1; x++) {
+            i = x+y*Nx;
+            if(V[i] == GOAL_VALUE) {
+                T[i] = HOP_GOAL;
+                continue;
+            }
+            min = i;
+            d = HOP_STUCK;
+            for(int k = 0; k < 8; k++)
+                if(V[i+hop[k]] < V[min]) { min = i+hop[k]; d = k; }
+            T[i] = (byte)d;
+        }
+    }
+
+    // The GDS from node i over the table, the same cells as the one over V
+    static int findHops(ByteBuffer hops, int[] hop, int i, int[] buf) {
+        int n = 0, d;
+
+        while(true) {
+            d = hops.get(i);
+
+            // Opps, we stuck, or we start on the goal
+            if(d >= HOP_STUCK) {
+                if(n < buf.length) buf[n] = i;
+                ++n;
+                break;
+            }
+
+            i += hop[d];
+            if(n < buf.length) buf[n] = i;
+            ++n;
+
+            // The goal is found
+            if(hops.get(i) == HOP_GOAL) break;
+        }
+        return n;
+    }
+
+    //
+    // The batch query, i.e. the paths from many starts, given as the cell
+    // indices x+y*Nx, to the goal of one converged field. It runs over the
+    // next-hop table, which is built first if need be, in parallel bands
+    // of the starts. Paths that merge share the rest of their way, so the
+    // length of a node is worked out once and then taken by every path
+    // that passes it. The cells of a path are left in the table and only
+    // written out by PathSet.path().
+    //
+    public PathSet findPaths(int[] starts) {
+        if(hops == null) buildHops();
+        PathSet p = new PathSet(hops, hop, starts);
+        int[] memo = new int[Nx*Ny];
+        forEachBand(starts.length, (lo, hi, acc) -> doFindPaths(p, memo, lo, hi));
+        return p;
+    }
+
+    //
+    // memo holds the length of the path from a node, negative if it ends
+    // stuck, or 0 if it is not known yet. Two bands may work out the same
+    // node at once, but they write the same value.
+    //
+    void doFindPaths(PathSet p, int[] memo, int lo, int hi) {
+        int[] stack = new int[PATH_SIZE];
+        int i, j, d, m, n;
+        for(int k = lo; k < hi; k++) {
+            // Down to a node of known length, or to the end
+            i = p.starts[k];
+            n = 0;
+            while(memo[i] == 0) {
+                d = p.hops.get(i);
+                if(d >= HOP_STUCK) {
+                    memo[i] = (d == HOP_GOAL) ? 1 : -1;
+                    break;
+                }
+                j = i + hop[d];
+                if(p.hops.get(j) == HOP_GOAL) {
+                    memo[i] = 1;
+                    break;
+                }
+                if(n == stack.length) stack = Arrays.copyOf(stack, 2*n);
+                stack[n++] = i;
+                i = j;
+            }
+
+            // and back up, one node longer per step
+            m = memo[i];
+            while(n > 0) {
+                m += (m > 0) ? 1 : -1;
+                memo[stack[--n]] = m;
+            }
+            p.length[k] = Math.abs(m);
+            p.reached[k] = (m > 0);
+        }
+    }
+
+    //
+    // The outcome of findPaths(): the length of each path and whether it
+    // reached the goal or got stuck. It keeps the table it was found on,
+    // so path() still works after the Solver moves on.
+    //
+    public static class PathSet {
+        public int[] starts;
+        public int[] length;
+        public boolean[] reached;
+        ByteBuffer hops;
+        int[] hop;
+
+        PathSet(ByteBuffer hops, int[] hop, int[] starts) {
+            this.hops = hops;
+            this.hop = hop;
+            this.starts = starts;
+            length = new int[starts.length];
+            reached = new boolean[starts.length];
         }
+
+        // The cells of path k, as Solver.findPath(x, y, buf)
+        public int path(int k, int[] buf) {
+            return findHops(hops, hop, starts[k], buf);
+        }
+
+        public int[] path(int k) {
+            int[] buf = new int[length[k]];
+            findHops(hops, hop, starts[k], buf);
+            return buf;
+        }
+    }
+
+    // Make V current for the queries. Only the first query after solve()
+    // has any work to do; the rest just pass the lock.
+    synchronized void settle() {
+        sync();
+        unpack();
+    }
+
+    public double getValue(int x, int y) {
+        sync();
+        unpack();
+        return V[x+y*Nx];
     }
 
     public void printMatrix() {
+        sync();
+        unpack();
         for(int y = 0; y < Ny; y++) {
             for(int x = 0; x < Nx; x++)
                 System.out.print(String.format("%f ", V[x+y*Nx]));
@@ -540,6 +2658,8 @@ public class Solver {
     }
     
     public void saveMatrix(String fname) {
+        sync();
+        unpack();
         try {
             PrintWriter writer = new PrintWriter(fname, "UTF-8");
             for(int y = 0; y < Ny; y++) {
@@ -554,7 +2674,285 @@ public class Solver {
         }
     }
 
+    //
+    // The binary field, see FieldFile. It holds V with the goal and the
+    // last solve(), and loads in a bulk copy instead of a parse.
+    //
+    public void saveField(String fname) throws IOException {
+        sync();
+        unpack();
+        FieldFile f = new FieldFile(Nx, Ny, gx, gy);
+        f.method = method;
+        f.params = params.clone();
+        f.iterations = iterations;
+        f.converged = converged;
+        f.residual = residual;
+        f.write(fname, V);
+    }
+
+    public void loadField(String fname) throws IOException {
+        try(FieldFile f = FieldFile.open(fname)) {
+            if(f.hops)
+                throw new IOException(fname + ": a next-hop table, not a field");
+            if((f.Nx != Nx) || (f.Ny != Ny))
+                throw new IOException(fname + ": the field is " + f.Nx + "x" + f.Ny + ", not " + Nx + "x" + Ny);
+            if((f.gx != gx) || (f.gy != gy))
+                throw new IOException(fname + ": the goal is " + f.gx + "," + f.gy + ", not " + gx + "," + gy);
+            if(!f.verify())
+                throw new IOException(fname + ": bad checksum");
+
+            unpack();
+            stale = false;
+            hops = null;
+            f.read(V);
+            System.arraycopy(V, 0, U, 0, V.length);
+            method = f.method;
+            params = f.params.clone();
+            iterations = f.iterations;
+            converged = f.converged;
+            residual = f.residual;
+        }
+    }
+
+    //
+    // The next-hop table in a file of its own, see FieldFile. It is mapped
+    // when loaded, so processes that load one file share its pages.
+    //
+    public void saveHops(String fname) throws IOException {
+        if(hops == null) buildHops();
+        byte[] T = new byte[Nx*Ny];
+        ByteBuffer b = hops.duplicate();
+        b.clear();
+        b.get(T);
+
+        FieldFile f = new FieldFile(Nx, Ny, gx, gy);
+        f.method = method;
+        f.params = params.clone();
+        f.iterations = iterations;
+        f.converged = converged;
+        f.residual = residual;
+        f.writeHops(fname, T);
+    }
+
+    public void loadHops(String fname) throws IOException {
+        try(FieldFile f = FieldFile.open(fname)) {
+            if(!f.hops)
+                throw new IOException(fname + ": a field, not a next-hop table");
+            if((f.Nx != Nx) || (f.Ny != Ny))
+                throw new IOException(fname + ": the table is " + f.Nx + "x" + f.Ny + ", not " + Nx + "x" + Ny);
+            if((f.gx != gx) || (f.gy != gy))
+                throw new IOException(fname + ": the goal is " + f.gx + "," + f.gy + ", not " + gx + "," + gy);
+            if(!f.verify())
+                throw new IOException(fname + ": bad checksum");
+            hops = f.table;
+        }
+    }
+
+    //
+    // The GDS on a mapped field, i.e. without loading it. The path is
+    // left in path as runGDS(x, y) does.
+    //
+    public void runGDS(FieldFile f, int x, int y) {
+        if(f.hops)
+            throw new IllegalArgumentException("A next-hop table, not a field");
+        if((f.Nx != Nx) || (f.Ny != Ny))
+            throw new IllegalArgumentException("The field is " + f.Nx + "x" + f.Ny + ", not " + Nx + "x" + Ny);
+
+        int minx = x, miny = y;
+
+        path.clear();
+        while(true) {
+            if(f.get(x-1, y) < f.get(minx, miny)) { minx = x-1; miny = y; }
+            if(f.get(x, y-1) < f.get(minx, miny)) { minx = x; miny = y-1; }
+            if(f.get(x+1, y) < f.get(minx, miny)) { minx = x+1; miny = y; }
+            if(f.get(x, y+1) < f.get(minx, miny)) { minx = x; miny = y+1; }
+
+            if(f.get(x-1, y-1) < f.get(minx, miny)) { minx = x-1; miny = y-1; }
+            if(f.get(x+1, y-1) < f.get(minx, miny)) { minx = x+1; miny = y-1; }
+            if(f.get(x-1, y+1) < f.get(minx, miny)) { minx = x-1; miny = y+1; }
+            if(f.get(x+1, y+1) < f.get(minx, miny)) { minx = x+1; miny = y+1; }
+
+            path.add(new Point(minx, miny));
+
+            // Opps, we stuck
+            if((minx == x) && (miny == y)) break;
+
+            // The goal is found
+            if(f.get(minx, miny) == GOAL_VALUE) break;
+
+            x = minx; y = miny;
+        }
+    }
+
+    //
+    // The warm start. The goal and the obstacles of an existing Solver can
+    // be changed, and the next solve() carries on from the current field
+    // instead of from FREE_VALUE. A freed obstacle keeps its value, which
+    // is close to its nybors anyway, but the old goal points are reset to
+    // FREE_VALUE so that no sink is left behind.
+    //
+    public void setGoal(int gx, int gy) {
+        sync();
+        unpack();
+
+        int ox = this.gx, oy = this.gy;
+        for(int y = oy-1; y <= oy+1; y++)
+        for(int x = ox-1; x <= ox+1; x++)
+            W[x+y*Nx] = O[x+y*Nx];
+
+        this.gx = gx;
+        this.gy = gy;
+        for(int y = gy-1; y <= gy+1; y++)
+        for(int x = gx-1; x <= gx+1; x++)
+            W[x+y*Nx] = WALL_VALUE;
+
+        for(int y = oy-1; y <= oy+1; y++)
+        for(int x = ox-1; x <= ox+1; x++)
+            setValue(x+y*Nx, (W[x+y*Nx] == WALL_VALUE) ? initValue(x, y) : FREE_VALUE);
+        for(int y = gy-1; y <= gy+1; y++)
+        for(int x = gx-1; x <= gx+1; x++)
+            setValue(x+y*Nx, initValue(x, y));
+
+        touch(ox-1, oy-1, ox+1, oy+1);
+        touch(gx-1, gy-1, gx+1, gy+1);
+        doInitIndex();
+    }
+
+    public void setObstacle(int x, int y, boolean wall) {
+        setObstacle(x, y, x, y, wall);
+    }
+
+    // Mark or clear the rectangle x0..x1, y0..y1 (inclusive). The outer
+    // boundary walls and the goal points are left as they are.
+    public void setObstacle(int x0, int y0, int x1, int y1, boolean wall) {
+        sync();
+        unpack();
+
+        int i;
+        for(int y = Math.max(y0, 1); y <= Math.min(y1, Ny-2); y++)
+        for(int x = Math.max(x0, 1); x <= Math.min(x1, Nx-2); x++) {
+            i = x+y*Nx;
+            O[i] = wall ? WALL_VALUE : 0;
+            if((Math.abs(x-gx) <= 1) && (Math.abs(y-gy) <= 1)) continue;
+            W[i] = O[i];
+            if(wall) setValue(i, BOUNDARY_VALUE);
+        }
+
+        touch(x0, y0, x1, y1);
+        doInitIndex();
+    }
+
+    // Keep the cells of x0..x1, y0..y1 and their nybors for repair()
+    void touch(int x0, int y0, int x1, int y1) {
+        for(int y = Math.max(y0-1, 1); y <= Math.min(y1+1, Ny-2); y++)
+        for(int x = Math.max(x0-1, 1); x <= Math.min(x1+1, Nx-2); x++) {
+            if(nDirty == dirty.length) dirty = Arrays.copyOf(dirty, 2*nDirty);
+            dirty[nDirty++] = x+y*Nx;
+        }
+    }
+
+    //
+    // The local repair after setObstacle() or setGoal(). Instead of a
+    // solve() over the whole map, only the tiles of TILE x TILE cells
+    // around the changes are relaxed, off a work queue. A tile is given
+    // one SOR sweep with w, and if any of its cells has moved by more than
+    // tol, as measured by the Convergence, the tile and its 4 nybors are
+    // queued again. The active region grows as far as the change matters
+    // at tol and no further, so the work goes with the affected area
+    // instead of with the map.
+    //
+    // Near the goal a change can matter all over the map at a tight tol,
+    // and a tile sweep is a poor way to move it that far. So once the
+    // repair has spent REPAIR_BUDGET sweeps worth of updates, it stops
+    // and the rest is left to a warm solve() of the last method. Returns
+    // the number of cell updates, those of the solve() included.
+    //
+    public int repair() {
+        return repair(convergence.epsilon, REPAIR_OMEGA);
+    }
+
+    public int repair(double tol, double w) {
+        settle();
+        hops = null;
+
+        int TX = (Nx + TILE-1) / TILE, TY = (Ny + TILE-1) / TILE;
+        if((queued == null) || (queued.length != TX*TY)) queued = new boolean[TX*TY];
+
+        // Each tile is queued once at most, so the ring never overflows
+        int[] queue = new int[TX*TY];
+        int head = 0, size = 0, t, tx, ty;
+        long n = 0;
+        long budget = (long)REPAIR_BUDGET * free.length;
+
+        for(int k = 0; k < nDirty; k++) {
+            t = (dirty[k] % Nx) / TILE + ((dirty[k] / Nx) / TILE) * TX;
+            if(queued[t]) continue;
+            queue[(head + size++) % queue.length] = t;
+            queued[t] = true;
+        }
+        nDirty = 0;
+
+        Residual res = new Residual(convergence.relative);
+        while((size > 0) && (n < budget)) {
+            t = queue[head];
+            head = (head + 1) % queue.length;
+            --size;
+            queued[t] = false;
+
+            tx = t % TX;
+            ty = t / TX;
+            res.max = 0;
+            n += doRepairTile(tx*TILE, ty*TILE, Math.min(tx*TILE+TILE, Nx-1), Math.min(ty*TILE+TILE, Ny-1), w, res);
+            if(!(res.max > tol)) continue;
+
+            int[] next = {t, (tx > 0) ? t-1 : -1, (tx < TX-1) ? t+1 : -1, (ty > 0) ? t-TX : -1, (ty < TY-1) ? t+TX : -1};
+            for(int d = 0; d < next.length; d++) {
+                if((next[d] < 0) || queued[next[d]]) continue;
+                queue[(head + size++) % queue.length] = next[d];
+                queued[next[d]] = true;
+            }
+        }
+
+        // Opps, the change is not local
+        if(size > 0) {
+            while(size > 0) {
+                queued[queue[head]] = false;
+                head = (head + 1) % queue.length;
+                --size;
+            }
+            String m = method.isEmpty() ? "SOR" : method;
+            double[] p = method.isEmpty() ? new double[] {w, w, w, w, w, w} : params.clone();
+            n += (long)solve(m, p, false) * nodesOf(m);
+        }
+        return (int)Math.min(n, Integer.MAX_VALUE);
+    }
+
+    // One SOR sweep of the free cells of x0..x1-1, y0..y1-1, after sync()
+    int doRepairTile(int x0, int y0, int x1, int y1, double w, Residual res) {
+        int i, n = 0;
+        double v;
+        for(int y = Math.max(y0, 1); y < y1; y++)
+        for(int x = Math.max(x0, 1); x < x1; x++) {
+            i = x+y*Nx;
+            if((W[i] == WALL_VALUE) || (reach && !A[i])) continue;
+            v = w*0.25 * (V[i-1] + V[i+1] + V[i-Nx] + V[i+Nx]) + (1-w)*V[i];
+            res.add(V[i], v);
+            U[i] = V[i] = v;
+            ++n;
+        }
+        return n;
+    }
+
+
+    // Set both U and V, after sync()
+    void setValue(int i, double v) {
+        U[i] = V[i] = v;
+    }
+
     public void loadMatrix(String fname) {
+        unpack();
+        stale = false;
+        hops = null;
         try {
             File file = new File(fname);
             Scanner sc = new Scanner(file);
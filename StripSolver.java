@@ -0,0 +1,622 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The distributed Solver, i.e. the grid split into strips over worker processes.
+//
+// Usage:
+//     java StripSolver -worker [-port p] [-threads n] [-once]
+//     java StripSolver -local n|-workers host:port,... [-verify] [criteria] <map.png> <sx> <sy> <gx> <gy> <method> [w ww r s t u]
+//
+// The interior rows of the grid are split into horizontal strips, one per
+// worker. A worker keeps its strip and one halo row above and below it in
+// a Solver of its own, and runs the RED and BLACK passes of MSOR, MAOR or
+// QOR on it with the kernels of the Solver. After each pass it swaps its
+// first and last rows with the workers above and below it over a socket,
+// so the halo rows hold the values that the serial sweep would read. So
+// the field is bit-identical to that of a Solver after the same number
+// of iterations.
+//
+// At each convergence check every worker sends its Residual to the
+// coordinator, which merges them in the order of the strips and tells
+// all of them whether to go on. Only the sums are taken in another order
+// than in the serial sweep, so the MEAN and L2 error may differ in the
+// last bit and a solve may take one iteration more or less. The LINF
+// error is the same.
+//
+// The strips start on odd rows, so that a node has the same colour in
+// its strip as in the whole grid. A worker serves one coordinator at a
+// time and then waits for the next, unless it is started with -once.
+// With -local n the coordinator starts n workers as JVMs on this host;
+// with -workers it connects to workers started on other hosts, and each
+// of them connects to the next one at the address given. With -verify
+// the map is also solved by a Solver and the two fields are compared.
+// The criteria are those of the Runner.
+//
+
+import java.awt.image.*;
+import javax.imageio.*;
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+public class StripSolver implements Closeable {
+    // The messages, each an int
+    static final int HELLO = 0x53545250;
+    static final int COORDINATOR = 1;
+    static final int PEER = 2;
+    static final int SOLVE = 3;
+    static final int CLOSE = 4;
+    static final int GO = 0;
+    static final int STOP = 1;
+
+    Solver solver;
+    int Nx, Ny;
+    int P;
+
+    // Strip k is the rows rows[k]..rows[k+1]-1
+    int[] rows;
+
+    Socket[] sockets;
+    DataInputStream[] in;
+    DataOutputStream[] out;
+    byte[] bytes;
+
+    // The local workers, see startLocal()
+    Process[] processes;
+
+    Convergence convergence = new Convergence();
+    public double residual;
+    public boolean converged;
+
+    //
+    // Split the grid of the solver over the workers, given as host:port.
+    // The solver keeps the walls, the goal and the field; its field is
+    // sent to the workers at each solve() and the result is put back in
+    // it, so its findPath() and getValue() work as after its own solve().
+    //
+    public StripSolver(Solver solver, String[] workers) throws IOException {
+        this.solver = solver;
+        Nx = solver.Nx;
+        Ny = solver.Ny;
+        P = workers.length;
+        if(P < 1)
+            throw new IllegalArgumentException("At least one worker is needed");
+        if(Ny-2 < 2*P)
+            throw new IllegalArgumentException("The map has too few rows for " + P + " workers");
+
+        rows = new int[P+1];
+        for(int k = 0; k < P; k++)
+            rows[k] = 1 + 2*(int)((long)k*(Ny-2)/(2*P));
+        rows[P] = Ny-1;
+
+        sockets = new Socket[P];
+        in = new DataInputStream[P];
+        out = new DataOutputStream[P];
+        bytes = new byte[8*Nx];
+
+        try {
+            // Connect to all of them first, so that a worker always
+            // accepts its coordinator before the worker above it
+            for(int k = 0; k < P; k++) {
+                sockets[k] = connect(workers[k]);
+                in[k] = new DataInputStream(new BufferedInputStream(sockets[k].getInputStream()));
+                out[k] = new DataOutputStream(new BufferedOutputStream(sockets[k].getOutputStream()));
+                out[k].writeInt(HELLO);
+                out[k].writeInt(COORDINATOR);
+            }
+
+            // The strip and the walls of its halo; a node that is not
+            // iterated, e.g. one cut off with setReach(), counts as a wall
+            byte[] b = new byte[Nx];
+            int i;
+            for(int k = 0; k < P; k++) {
+                DataOutputStream o = out[k];
+                o.writeInt(k);
+                o.writeInt(P);
+                o.writeInt(Nx);
+                o.writeInt(rows[k+1] - rows[k] + 2);
+                o.writeUTF((k+1 < P) ? workers[k+1] : "");
+                for(int y = rows[k]-1; y <= rows[k+1]; y++) {
+                    for(int x = 0; x < Nx; x++) {
+                        i = x+y*Nx;
+                        b[x] = (byte)(((solver.W[i] == Solver.WALL_VALUE) || (solver.reach && !solver.A[i])) ? 1 : 0);
+                    }
+                    o.write(b);
+                }
+                o.flush();
+            }
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    //
+    // Start n workers as JVMs on this host, on the class path of this
+    // one, and split the grid over them. They are stopped by close().
+    //
+    public static StripSolver startLocal(Solver solver, int n) throws IOException {
+        Process[] processes = new Process[n];
+        String[] workers = new String[n];
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        try {
+            for(int k = 0; k < n; k++) {
+                ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                                       "StripSolver", "-worker", "-port", "0", "-once");
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+                processes[k] = pb.start();
+
+                // The worker prints the port it listens on
+                BufferedReader reader = new BufferedReader(new InputStreamReader(processes[k].getInputStream()));
+                String line = reader.readLine();
+                if(line == null)
+                    throw new IOException("The worker " + k + " did not start");
+                workers[k] = "localhost:" + line.substring(line.lastIndexOf(' ')+1);
+            }
+            StripSolver strips = new StripSolver(solver, workers);
+            strips.processes = processes;
+            return strips;
+        }
+        catch (IOException | RuntimeException e) {
+            for(int k = 0; k < n; k++)
+                if(processes[k] != null) processes[k].destroy();
+            throw e;
+        }
+    }
+
+    static Socket connect(String address) throws IOException {
+        int c = address.lastIndexOf(':');
+        if(c < 0)
+            throw new IllegalArgumentException("Not a host:port: " + address);
+        Socket socket = new Socket(address.substring(0, c), Integer.parseInt(address.substring(c+1)));
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    public void setConvergence(Convergence convergence) {
+        this.convergence = convergence;
+    }
+
+    static void checkMethod(String method) {
+        switch(method.toUpperCase()) {
+            case "MSOR": case "MAOR": case "QOR":
+                return;
+        }
+        Solver.sweepOf(method);
+        throw new IllegalArgumentException("Not a red-black method: " + method);
+    }
+
+    //
+    // Solve with the method, which is MSOR, MAOR or QOR, from the field
+    // of the solver. The workers iterate on their own and only wait for
+    // the coordinator at the convergence checks.
+    //
+    public int solve(String method, double w, double ww, double r, double s, double t, double u) throws IOException {
+        checkMethod(method);
+        solver.sync();
+        solver.unpack();
+
+        for(int k = 0; k < P; k++) {
+            DataOutputStream o = out[k];
+            o.writeInt(SOLVE);
+            o.writeUTF(method.toUpperCase());
+            o.writeDouble(w);
+            o.writeDouble(ww);
+            o.writeDouble(r);
+            o.writeDouble(s);
+            o.writeDouble(t);
+            o.writeDouble(u);
+            o.writeBoolean(convergence.relative);
+            o.writeInt(convergence.interval);
+            o.writeInt(convergence.maxIterations);
+            for(int y = rows[k]-1; y <= rows[k+1]; y++)
+                writeRow(o, bytes, solver.V, y*Nx, Nx);
+            o.flush();
+        }
+
+        int iteration = 0;
+        boolean stop;
+        converged = false;
+        residual = Double.NaN;
+        while(true) {
+            ++iteration;
+            stop = false;
+            if(convergence.isCheck(iteration)) {
+                // The global reduction, in the order of the strips
+                Solver.Residual acc = new Solver.Residual(convergence.relative);
+                Solver.Residual part = new Solver.Residual(convergence.relative);
+                for(int k = 0; k < P; k++) {
+                    part.err = in[k].readDouble();
+                    part.sq = in[k].readDouble();
+                    part.max = in[k].readDouble();
+                    part.k = in[k].readInt();
+                    acc.merge(part);
+                }
+                residual = convergence.error(acc);
+                if(convergence.isConverged(residual)) {
+                    converged = true;
+                    stop = true;
+                }
+
+                // Opps, it diverges
+                else if(Double.isNaN(residual) || Double.isInfinite(residual)) stop = true;
+
+                for(int k = 0; k < P; k++) {
+                    out[k].writeInt(stop ? STOP : GO);
+                    out[k].flush();
+                }
+            }
+            if(stop || convergence.isExhausted(iteration)) break;
+        }
+
+        // The strips of the field
+        solver.stale = false;
+        solver.hops = null;
+        for(int k = 0; k < P; k++)
+            for(int y = rows[k]; y < rows[k+1]; y++)
+                readRow(in[k], bytes, solver.V, y*Nx, Nx);
+        System.arraycopy(solver.V, 0, solver.U, 0, solver.V.length);
+
+        solver.residual = residual;
+        solver.converged = converged;
+        solver.record(method, w, ww, r, s, t, u, iteration);
+        return iteration;
+    }
+
+    public void close() {
+        for(int k = 0; k < P; k++) {
+            if(sockets[k] == null) continue;
+            try {
+                out[k].writeInt(CLOSE);
+                out[k].flush();
+            }
+            catch (IOException e) {
+                // The worker is gone already
+            }
+            try {
+                sockets[k].close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+            sockets[k] = null;
+        }
+
+        if(processes == null) return;
+        for(int k = 0; k < processes.length; k++) {
+            try {
+                if(!processes[k].waitFor(5, TimeUnit.SECONDS)) processes[k].destroy();
+            }
+            catch (InterruptedException e) {
+                processes[k].destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+        processes = null;
+    }
+
+    static void writeRow(DataOutputStream o, byte[] bytes, double[] X, int off, int n) throws IOException {
+        ByteBuffer.wrap(bytes).asDoubleBuffer().put(X, off, n);
+        o.write(bytes, 0, 8*n);
+    }
+
+    static void readRow(DataInputStream i, byte[] bytes, double[] X, int off, int n) throws IOException {
+        i.readFully(bytes, 0, 8*n);
+        ByteBuffer.wrap(bytes).asDoubleBuffer().get(X, off, n);
+    }
+
+    //
+    // The worker, i.e. one strip of the grid
+    //
+    static class Worker {
+        ServerSocket server;
+        ForkJoinPool pool;
+
+        Solver s;
+        int rank, P;
+        int Nx, n;
+        boolean relative;
+        byte[] bytes;
+
+        DataInputStream in, upIn, downIn;
+        DataOutputStream out, upOut, downOut;
+
+        Worker(ServerSocket server, ForkJoinPool pool) {
+            this.server = server;
+            this.pool = pool;
+        }
+
+        //
+        // Serve one coordinator, from its strip to its CLOSE
+        //
+        void serve(Socket coordinator) throws IOException {
+            Socket up = null, down = null;
+            try {
+                coordinator.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+                if((in.readInt() != HELLO) || (in.readInt() != COORDINATOR))
+                    throw new IOException("Not a coordinator: " + coordinator.getRemoteSocketAddress());
+
+                rank = in.readInt();
+                P = in.readInt();
+                Nx = in.readInt();
+                n = in.readInt();
+                String next = in.readUTF();
+                bytes = new byte[8*Nx];
+
+                // The walls of the strip, as a map for the Solver. Its
+                // outer boundary falls on the halo rows, which are then
+                // not iterated.
+                BufferedImage img = new BufferedImage(Nx, n, BufferedImage.TYPE_BYTE_GRAY);
+                byte[] data = ((DataBufferByte)img.getRaster().getDataBuffer()).getData();
+                byte[] b = new byte[Nx];
+                for(int y = 0; y < n; y++) {
+                    in.readFully(b);
+                    for(int x = 0; x < Nx; x++)
+                        data[x+y*Nx] = (b[x] != 0) ? (byte)0 : (byte)255;
+                }
+                s = new Solver(img, pool);
+                s.U = new double[Nx*n];
+                s.V = new double[Nx*n];
+                s.doInitIndex();
+
+                // The worker below first, it waits in the backlog of its
+                // server, then the one above
+                if(!next.isEmpty()) {
+                    down = connect(next);
+                    downIn = new DataInputStream(new BufferedInputStream(down.getInputStream()));
+                    downOut = new DataOutputStream(new BufferedOutputStream(down.getOutputStream()));
+                    downOut.writeInt(HELLO);
+                    downOut.writeInt(PEER);
+                    downOut.flush();
+                }
+                if(rank > 0) {
+                    up = server.accept();
+                    up.setTcpNoDelay(true);
+                    upIn = new DataInputStream(new BufferedInputStream(up.getInputStream()));
+                    upOut = new DataOutputStream(new BufferedOutputStream(up.getOutputStream()));
+                    if((upIn.readInt() != HELLO) || (upIn.readInt() != PEER))
+                        throw new IOException("Not a worker: " + up.getRemoteSocketAddress());
+                }
+
+                int command;
+                while((command = in.readInt()) != CLOSE) {
+                    if(command != SOLVE)
+                        throw new IOException("Unknown command: " + command);
+                    solve();
+                }
+            }
+            finally {
+                if(down != null) down.close();
+                if(up != null) up.close();
+                coordinator.close();
+                s = null;
+                upIn = downIn = null;
+                upOut = downOut = null;
+            }
+        }
+
+        void solve() throws IOException {
+            String method = in.readUTF();
+            double[] p = new double[6];
+            for(int k = 0; k < 6; k++) p[k] = in.readDouble();
+            relative = in.readBoolean();
+            int interval = in.readInt();
+            int maxIterations = in.readInt();
+            Convergence convergence = new Convergence(Convergence.MEAN, relative, 0.0, interval, maxIterations);
+
+            for(int y = 0; y < n; y++)
+                readRow(in, bytes, s.V, y*Nx, Nx);
+            System.arraycopy(s.V, 0, s.U, 0, s.V.length);
+
+            int iteration = 0;
+            boolean check;
+            while(true) {
+                ++iteration;
+                check = convergence.isCheck(iteration);
+                iterate(method, p, check);
+                if(check) {
+                    out.writeDouble(s.acc.err);
+                    out.writeDouble(s.acc.sq);
+                    out.writeDouble(s.acc.max);
+                    out.writeInt(s.acc.k);
+                    out.flush();
+                    if(in.readInt() == STOP) break;
+                }
+                if(convergence.isExhausted(iteration)) break;
+            }
+            s.acc = null;
+
+            // After the swap U holds the latest iterate
+            for(int y = 1; y < n-1; y++)
+                writeRow(out, bytes, s.U, y*Nx, Nx);
+            out.flush();
+        }
+
+        //
+        // One iteration as in Solver.doMSOR(), doMAOR() and doQOR(), with
+        // the halo rows of V swapped after each colour
+        //
+        void iterate(String method, double[] p, boolean check) throws IOException {
+            s.acc = check ? new Solver.Residual(relative) : null;
+            double w = p[0], ww = p[1], r = p[2];
+
+            if(method.equals("MAOR")) s.forEachBand(s.red, (lo, hi, acc) -> s.doMSORRed(ww, lo, hi, acc));
+            else s.forEachBand(s.red, (lo, hi, acc) -> s.doMSORRed(w, lo, hi, acc));
+            exchange(s.V);
+
+            if(method.equals("MSOR")) s.forEachBand(s.black, (lo, hi, acc) -> s.doMSORBlack(ww, lo, hi, acc));
+            else if(method.equals("MAOR")) s.forEachBand(s.black, (lo, hi, acc) -> s.doMAORBlack(w, r, lo, hi, acc));
+            else s.forEachBand(s.black, (lo, hi, acc) -> s.doQORBlack(w, r, p[3], p[4], p[5], lo, hi, acc));
+            exchange(s.V);
+
+            s.swap();
+        }
+
+        //
+        // Swap the halo rows of X with the nybors. The even ranks talk to
+        // the one below first and the odd ranks to the one above, and of
+        // each pair the upper one sends first, so no two workers wait on
+        // each other however small the socket buffers are.
+        //
+        void exchange(double[] X) throws IOException {
+            if(rank % 2 == 0) {
+                exchangeDown(X);
+                exchangeUp(X);
+            }
+            else {
+                exchangeUp(X);
+                exchangeDown(X);
+            }
+        }
+
+        void exchangeDown(double[] X) throws IOException {
+            if(downOut == null) return;
+            writeRow(downOut, bytes, X, (n-2)*Nx, Nx);
+            downOut.flush();
+            readRow(downIn, bytes, X, (n-1)*Nx, Nx);
+        }
+
+        void exchangeUp(double[] X) throws IOException {
+            if(upIn == null) return;
+            readRow(upIn, bytes, X, 0, Nx);
+            writeRow(upOut, bytes, X, Nx, Nx);
+            upOut.flush();
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        boolean worker = false, once = false, verify = false;
+        int port = 0, local = 0;
+        String[] workers = null;
+        ForkJoinPool pool = null;
+        int norm = Convergence.MEAN;
+        boolean relative = true;
+        double epsilon = Solver.EPSILON;
+        int interval = 1;
+        int maxIterations = 0;
+
+        int k = 0;
+        Convergence convergence;
+        try {
+            while(k < args.length && args[k].startsWith("-")) {
+                if(args[k].equals("-worker")) worker = true;
+                else if(args[k].equals("-once")) once = true;
+                else if(args[k].equals("-verify")) verify = true;
+                else if(args[k].equals("-port") && k+1 < args.length) port = Integer.parseInt(args[++k]);
+                else if(args[k].equals("-threads") && k+1 < args.length) pool = new ForkJoinPool(Integer.parseInt(args[++k]));
+                else if(args[k].equals("-local") && k+1 < args.length) local = Integer.parseInt(args[++k]);
+                else if(args[k].equals("-workers") && k+1 < args.length) workers = args[++k].split(",");
+                else if(args[k].equals("-norm") && k+1 < args.length) norm = Convergence.normOf(args[++k]);
+                else if(args[k].equals("-abs")) relative = false;
+                else if(args[k].equals("-eps") && k+1 < args.length) epsilon = Double.parseDouble(args[++k]);
+                else if(args[k].equals("-every") && k+1 < args.length) interval = Integer.parseInt(args[++k]);
+                else if(args[k].equals("-maxiter") && k+1 < args.length) maxIterations = Integer.parseInt(args[++k]);
+                else throw new IllegalArgumentException("Unknown option " + args[k]);
+                ++k;
+            }
+            convergence = new Convergence(norm, relative, epsilon, interval, maxIterations);
+            if(!worker && ((args.length - k < 6) || ((local > 0) == (workers != null))))
+                throw new IllegalArgumentException("Give a map and either -local or -workers");
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+            return;
+        }
+
+        if(worker) {
+            runWorker(port, pool, once);
+            return;
+        }
+
+        try {
+            String fname = args[k];
+            int sx = Integer.parseInt(args[k+1]);
+            int sy = Integer.parseInt(args[k+2]);
+            int gx = Integer.parseInt(args[k+3]);
+            int gy = Integer.parseInt(args[k+4]);
+            String method = args[k+5].toUpperCase();
+            double[] p = new double[6];
+            for(int i = 0; i < 6; i++)
+                p[i] = Float.parseFloat((k+6+i < args.length) ? args[k+6+i] : Runner.DEFAULTS[i]);
+            checkMethod(method);
+
+            BufferedImage img = ImageIO.read(new File(fname));
+            if(img == null)
+                throw new IOException(fname + ": not a supported image");
+
+            Solver solver = new Solver(img, gx, gy);
+            StripSolver strips = (local > 0) ? startLocal(solver, local) : new StripSolver(solver, workers);
+            int iteration;
+            long startTime = System.nanoTime();
+            try {
+                strips.setConvergence(convergence);
+                iteration = strips.solve(method, p[0], p[1], p[2], p[3], p[4], p[5]);
+            }
+            finally {
+                strips.close();
+            }
+            long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            int[] path = solver.findPath(sx, sy);
+            int end = (path.length > 0) ? path[path.length-1] : sx+sy*solver.Nx;
+            String status = (solver.getValue(end % solver.Nx, end / solver.Nx) == Solver.GOAL_VALUE) ? "goal" : "stuck";
+            System.out.println(String.format("%s,%s,%d,%d,%d,%b,%s,%s,%d",
+                                             fname, method, strips.P, iteration, elapsedTime,
+                                             strips.converged, strips.residual, status, path.length));
+
+            if(verify) {
+                // The serial solve, for the same number of iterations
+                Solver serial = new Solver(img, gx, gy, pool);
+                serial.setConvergence(new Convergence(norm, relative, epsilon, interval, iteration));
+                int n = serial.solve(method, p[0], p[1], p[2], p[3], p[4], p[5]);
+                int differ = 0;
+                for(int y = 0; y < solver.Ny; y++)
+                for(int x = 0; x < solver.Nx; x++)
+                    if(Double.doubleToLongBits(serial.getValue(x, y)) != Double.doubleToLongBits(solver.getValue(x, y))) ++differ;
+                System.out.println(String.format("serial,%s,%d,%b,%s,%d nodes differ", method, n, serial.converged, serial.residual, differ));
+                if(differ > 0) System.exit(1);
+            }
+        }
+        catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static void runWorker(int port, ForkJoinPool pool, boolean once) {
+        try(ServerSocket server = new ServerSocket(port)) {
+            System.out.println("StripSolver worker listening on port " + server.getLocalPort());
+            System.out.flush();
+
+            Worker worker = new Worker(server, pool);
+            do {
+                try {
+                    worker.serve(server.accept());
+                }
+                catch (IOException e) {
+                    System.err.println("StripSolver worker: " + e.getMessage());
+                }
+            } while(!once);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    static void usage() {
+        System.err.println("Usage: java StripSolver -worker [-port p] [-threads n] [-once]");
+        System.err.println("       java StripSolver -local n|-workers host:port,... [-verify] [criteria] <map.png> <sx> <sy> <gx> <gy> <method> [w ww r s t u]");
+    }
+}
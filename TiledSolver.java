@@ -0,0 +1,336 @@
+//
+// Author: Azali Saudi
+// Date Created : 18 Oct 2026
+// Last Modified: 18 Oct 2026
+// Task: The out-of-core Solver, i.e. the field is kept in tiles on disk.
+//
+// The grid is split into T by T tiles. The field and the walls of each
+// tile are kept in the files U.tiles and W.tiles of a directory, which
+// are mapped once in segments of at most 1 GB. Only the tiles that a
+// sweep touches are paged in, and the OS writes them back and drops them
+// when memory is short, so the heap holds just one tile. A sweep copies
+// one tile and a halo of one node from its 4 nybors into a small array,
+// updates it, and writes it back.
+//
+// The tiles are swept row by row, so every node still sees the new
+// value on its left and top and the old value on its right and bottom,
+// as in the in-core Solver. So SOR, KSOR and MSOR give the same field,
+// only the residual is summed in another order.
+//
+// The walls come from a Walls source, e.g. an image or a raw occupancy
+// file of one byte per node, 0 for a wall, that is also mapped.
+//
+
+import java.awt.image.*;
+import java.awt.Point;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.Queue;
+
+public class TiledSolver implements Closeable {
+    public static final int TILE = 256;
+    static final int SEGMENT = 1 << 30;
+
+    public interface Walls {
+        boolean isWall(int x, int y);
+    }
+
+    int Nx, Ny;
+    int gx, gy;
+    int T, S;
+    int ntx, nty;
+
+    FileChannel uChannel, wChannel;
+    MappedByteBuffer[] uSegments, wSegments;
+    int tilesPerSegment;
+    Tile[] tiles;
+
+    // The work tile with its halo, S = T+2 nodes wide
+    double[] L;
+    byte[] M;
+
+    Convergence convergence = new Convergence();
+    public double residual;
+    public boolean converged;
+
+    public Queue<Point> path = new LinkedList<Point>();
+
+    static class Tile {
+        DoubleBuffer u;
+        ByteBuffer w;
+    }
+
+    public TiledSolver(String dir, int Nx, int Ny, int gx, int gy, Walls walls) throws IOException {
+        this(dir, Nx, Ny, gx, gy, walls, TILE);
+    }
+
+    public TiledSolver(String dir, int Nx, int Ny, int gx, int gy, Walls walls, int T) throws IOException {
+        if((T < 4) || (8L*T*T > SEGMENT))
+            throw new IllegalArgumentException("The tile must be 4 to 11585 nodes wide");
+
+        this.Nx = Nx;
+        this.Ny = Ny;
+        this.gx = gx;
+        this.gy = gy;
+        this.T = T;
+        S = T+2;
+        ntx = (Nx + T-1) / T;
+        nty = (Ny + T-1) / T;
+        L = new double[S*S];
+        M = new byte[S*S];
+
+        Path d = Paths.get(dir);
+        Files.createDirectories(d);
+        uChannel = FileChannel.open(d.resolve("U.tiles"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        wChannel = FileChannel.open(d.resolve("W.tiles"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        // A tile never straddles two segments
+        long n = (long)T*T;
+        tiles = new Tile[ntx*nty];
+        tilesPerSegment = (int)(SEGMENT / (8*n));
+        int segments = (tiles.length + tilesPerSegment-1) / tilesPerSegment;
+        uSegments = new MappedByteBuffer[segments];
+        wSegments = new MappedByteBuffer[segments];
+        for(int k = 0; k < segments; k++) {
+            long t0 = (long)k*tilesPerSegment;
+            long t1 = Math.min(tiles.length, t0 + tilesPerSegment);
+            uSegments[k] = uChannel.map(FileChannel.MapMode.READ_WRITE, 8*n*t0, 8*n*(t1-t0));
+            wSegments[k] = wChannel.map(FileChannel.MapMode.READ_WRITE, n*t0, n*(t1-t0));
+        }
+
+        doInitTiles(walls);
+    }
+
+    //
+    // The same W and initial field as the Solver constructor. The nodes
+    // of the last tiles that are outside the map are walls.
+    //
+    void doInitTiles(Walls walls) {
+        for(int ty = 0; ty < nty; ty++)
+        for(int tx = 0; tx < ntx; tx++) {
+            Tile t = tile(tx, ty);
+            for(int j = 0; j < T; j++)
+            for(int i = 0; i < T; i++) {
+                int x = tx*T + i, y = ty*T + j;
+                boolean wall = (x >= Nx) || (y >= Ny) || (x == 0) || (y == 0) || (x == Nx-1) || (y == Ny-1) ||
+                               ((Math.abs(x-gx) <= 1) && (Math.abs(y-gy) <= 1)) || walls.isWall(x, y);
+                double v;
+                if((x >= Nx) || (y >= Ny) || (x == 0) || (y == 0) || (x == Nx-1) || (y == Ny-1))
+                    v = Solver.BOUNDARY_VALUE;
+                else if((Math.abs(x-gx) <= 1) && (Math.abs(y-gy) <= 1))
+                    v = Solver.GOAL_VALUE;
+                else
+                    v = wall ? Solver.BOUNDARY_VALUE : Solver.FREE_VALUE;
+                t.u.put(i+j*T, v);
+                t.w.put(i+j*T, (byte)(wall ? 1 : 0));
+            }
+        }
+    }
+
+    // The views of a tile into its segment, made when first used
+    Tile tile(int tx, int ty) {
+        int id = tx + ty*ntx;
+        Tile t = tiles[id];
+        if(t != null) return t;
+
+        int n = T*T;
+        int k = id / tilesPerSegment, j = id % tilesPerSegment;
+        t = new Tile();
+        t.u = uSegments[k].slice(8*n*j, 8*n).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        t.w = wSegments[k].slice(n*j, n);
+        tiles[id] = t;
+        return t;
+    }
+
+    public void setConvergence(Convergence convergence) {
+        this.convergence = convergence;
+    }
+
+    //
+    // Copy tile (tx, ty) and its halo into L and M. The halo of a tile on
+    // the edge of the grid is never read, as its nodes are walls.
+    //
+    void load(int tx, int ty) {
+        Tile t = tile(tx, ty);
+        for(int j = 0; j < T; j++) {
+            t.u.get(j*T, L, 1 + (j+1)*S, T);
+            t.w.get(j*T, M, 1 + (j+1)*S, T);
+        }
+        if(ty > 0)     tile(tx, ty-1).u.get((T-1)*T, L, 1, T);
+        if(ty < nty-1) tile(tx, ty+1).u.get(0, L, 1 + (T+1)*S, T);
+        if(tx > 0) {
+            DoubleBuffer u = tile(tx-1, ty).u;
+            for(int j = 0; j < T; j++) L[(j+1)*S] = u.get(T-1 + j*T);
+        }
+        if(tx < ntx-1) {
+            DoubleBuffer u = tile(tx+1, ty).u;
+            for(int j = 0; j < T; j++) L[T+1 + (j+1)*S] = u.get(j*T);
+        }
+    }
+
+    void store(int tx, int ty) {
+        Tile t = tile(tx, ty);
+        for(int j = 0; j < T; j++)
+            t.u.put(j*T, L, 1 + (j+1)*S, T);
+    }
+
+    //
+    // One sweep of the method over every tile. colour is -1 for all the
+    // nodes, else 0 for the RED and 1 for the BLACK nodes.
+    //
+    void sweep(String method, double w, int colour, Solver.Residual acc) {
+        for(int ty = 0; ty < nty; ty++)
+        for(int tx = 0; tx < ntx; tx++) {
+            load(tx, ty);
+            if(method.equals("KSOR")) doKSOR(w, acc);
+            else doSOR(w, tx, ty, colour, acc);
+            store(tx, ty);
+        }
+    }
+
+    void doSOR(double w, int tx, int ty, int colour, Solver.Residual acc) {
+        double v;
+        int j, x0;
+        int dx = (colour < 0) ? 1 : 2;
+        for(int y = 1; y <= T; y++) {
+            // The first node of the colour on this row
+            x0 = ((colour >= 0) && (((tx*T + ty*T + 1 + y) & 1) != colour)) ? 2 : 1;
+            for(int x = x0; x <= T; x += dx) {
+                j = x + y*S;
+                if(M[j] != 0) continue;
+                v = w*0.25 * (L[j-1] + L[j+1] + L[j-S] + L[j+S]) + (1-w)*L[j];
+                if(acc != null) acc.add(L[j], v);
+                L[j] = v;
+            }
+        }
+    }
+
+    void doKSOR(double w, Solver.Residual acc) {
+        double v;
+        int j;
+        for(int y = 1; y <= T; y++)
+        for(int x = 1; x <= T; x++) {
+            j = x + y*S;
+            if(M[j] != 0) continue;
+            v = (1./(1.+w)) * (w*0.25 * (L[j-1] + L[j+1] + L[j-S] + L[j+S]) + L[j]);
+            if(acc != null) acc.add(L[j], v);
+            L[j] = v;
+        }
+    }
+
+    //
+    // One iteration of SOR, KSOR or MSOR, see Solver.step().
+    //
+    public boolean step(String method, double w, double ww, boolean check) {
+        Solver.Residual acc = check ? new Solver.Residual(convergence.relative) : null;
+        switch(method.toUpperCase()) {
+            case "SOR":  sweep("SOR", w, -1, acc); break;
+            case "KSOR": sweep("KSOR", w, -1, acc); break;
+            case "MSOR":
+                sweep("SOR", w, 0, acc);
+                sweep("SOR", ww, 1, acc);
+                break;
+            default:
+                throw new IllegalArgumentException("Iteration Method Not Found: " + method);
+        }
+        if(acc == null) return false;
+
+        residual = convergence.error(acc);
+        return convergence.isConverged(residual);
+    }
+
+    public int solve(String method, double w, double ww) {
+        int iteration = 0;
+        boolean check;
+
+        converged = false;
+        residual = Double.NaN;
+        while(true) {
+            ++iteration;
+            check = convergence.isCheck(iteration);
+            if(step(method, w, ww, check)) {
+                converged = true;
+                break;
+            }
+
+            // Opps, it diverges
+            if(check && (Double.isNaN(residual) || Double.isInfinite(residual))) break;
+
+            if(convergence.isExhausted(iteration)) break;
+        }
+        return iteration;
+    }
+
+    public double getValue(int x, int y) {
+        return tile(x / T, y / T).u.get(x % T + (y % T)*T);
+    }
+
+    public void runGDS(int x, int y) {
+        int minx = x, miny = y;
+
+        path.clear();
+        while(true) {
+            if(getValue(x-1, y) < getValue(minx, miny)) { minx = x-1; miny = y; }
+            if(getValue(x, y-1) < getValue(minx, miny)) { minx = x; miny = y-1; }
+            if(getValue(x+1, y) < getValue(minx, miny)) { minx = x+1; miny = y; }
+            if(getValue(x, y+1) < getValue(minx, miny)) { minx = x; miny = y+1; }
+
+            if(getValue(x-1, y-1) < getValue(minx, miny)) { minx = x-1; miny = y-1; }
+            if(getValue(x+1, y-1) < getValue(minx, miny)) { minx = x+1; miny = y-1; }
+            if(getValue(x-1, y+1) < getValue(minx, miny)) { minx = x-1; miny = y+1; }
+            if(getValue(x+1, y+1) < getValue(minx, miny)) { minx = x+1; miny = y+1; }
+
+            path.add(new Point(minx, miny));
+
+            // Opps, we stuck
+            if((minx == x) && (miny == y)) break;
+
+            // The goal is found
+            if(getValue(minx, miny) == Solver.GOAL_VALUE) break;
+
+            x = minx; y = miny;
+        }
+    }
+
+    public void close() throws IOException {
+        for(int k = 0; k < uSegments.length; k++) {
+            uSegments[k].force();
+            wSegments[k].force();
+        }
+        uChannel.close();
+        wChannel.close();
+    }
+
+    //
+    // The wall sources, i.e. the black pixels of an image as in the
+    // Solver, or the 0 bytes of a raw occupancy file of Nx*Ny bytes.
+    //
+    public static Walls of(BufferedImage img) {
+        return (x, y) -> (img.getRGB(x, y) & 0x00FFFFFF) == 0;
+    }
+
+    public static Walls of(String fname, int Nx, int Ny) throws IOException {
+        try(FileChannel ch = FileChannel.open(Paths.get(fname), StandardOpenOption.READ)) {
+            if(ch.size() < (long)Nx*Ny)
+                throw new IOException(fname + ": less than " + Nx + "x" + Ny + " bytes");
+
+            // Whole rows of at most 1 GB per mapping
+            int rows = Math.max(1, (1 << 30) / Nx);
+            ByteBuffer[] maps = new ByteBuffer[(Ny + rows-1) / rows];
+            for(int c = 0; c < maps.length; c++) {
+                long y0 = (long)c*rows;
+                long n = Math.min(rows, Ny - y0);
+                maps[c] = ch.map(FileChannel.MapMode.READ_ONLY, y0*Nx, n*Nx);
+            }
+            return (x, y) -> maps[y / rows].get(x + (y % rows)*Nx) == 0;
+        }
+    }
+}